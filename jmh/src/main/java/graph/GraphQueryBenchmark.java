@@ -0,0 +1,112 @@
+package graph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Замеры JMH запросов к DirectedGraph, которые не изменяют граф: запросы
+// по степеням (массив, получатель и индекс степеней), обход за n ходов
+// и сложение графов. Граф строится один раз на каждую пару параметров
+// shape и size (генераторы графов - из GraphBenchmark), пропускная
+// способность выводится в вызовах в секунду. Выделение памяти на вызов
+// показывает профилировщик gc: java -jar benchmarks.jar -prof gc
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class GraphQueryBenchmark {
+    @Param({"random", "power-law", "chain"})
+    public String shape;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private DirectedGraph graph;
+    // Второй слагаемый граф для plus (случайный, того же размера)
+    private DirectedGraph other;
+    private DegreeIndex degreeIndex;
+    // Начальные вершины обходов, перебираются по кругу
+    private int[] starts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        Random random = new Random(42);
+        GraphBenchmark.Workload workload = GraphBenchmark.workload(shape, size, random);
+        graph = workload.build();
+        other = GraphBenchmark.randomGraph(size, random).build();
+        degreeIndex = graph.degreeIndex();
+        starts = new int[1024];
+        for (int i = 0; i < starts.length; ++i)
+            starts[i] = workload.from[random.nextInt(workload.from.length)];
+    }
+
+    private int nextStart() {
+        return starts[next++ & (starts.length - 1)];
+    }
+
+    @Benchmark
+    public int[] verticesWithMinDegree() {
+        return graph.verticesWithMinDegree(4);
+    }
+
+    @Benchmark
+    public void verticesWithMinDegreeSink(Blackhole blackhole) {
+        graph.verticesWithMinDegree(4, blackhole::consume);
+    }
+
+    @Benchmark
+    public int[] verticesWithInDominantDegree() {
+        return graph.verticesWithInDominantDegree();
+    }
+
+    @Benchmark
+    public void verticesWithInDominantDegreeSink(Blackhole blackhole) {
+        graph.verticesWithInDominantDegree(blackhole::consume);
+    }
+
+    @Benchmark
+    public int[] degreeIndexTop() {
+        return degreeIndex.top(DegreeIndex.Kind.TOTAL, 10);
+    }
+
+    @Benchmark
+    public int[] degreeIndexInRange() {
+        return degreeIndex.verticesInRange(DegreeIndex.Kind.TOTAL, 4, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int[] verticesWithinTwoSteps() {
+        return graph.verticesWithinTwoSteps(nextStart());
+    }
+
+    @Benchmark
+    public int[] verticesWithinNSteps() {
+        return graph.verticesWithinNSteps(nextStart(), 4);
+    }
+
+    @Benchmark
+    public void verticesWithinNStepsSink(Blackhole blackhole) {
+        graph.verticesWithinNSteps(nextStart(), 4, blackhole::consume);
+    }
+
+    @Benchmark
+    public void plus(Blackhole blackhole) {
+        blackhole.consume(graph.plus(other));
+    }
+}
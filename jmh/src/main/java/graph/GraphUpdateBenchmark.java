@@ -0,0 +1,89 @@
+package graph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Замеры JMH операций, изменяющих DirectedGraph. Операция разрушает граф,
+// поэтому вызов - один проход по всем рёбрам (для deleteVertex - по 1024
+// вершинам) над новым графом, построенным перед вызовом вне замера
+// (режим SingleShotTime: итерация - один вызов). Выводится время прохода;
+// время одной операции - время прохода, делённое на size (или на 1024).
+// Так же нормируется выделение памяти из профилировщика gc (-prof gc)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class GraphUpdateBenchmark {
+    @Param({"random", "power-law", "chain"})
+    public String shape;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private GraphBenchmark.Workload workload;
+    private int[] starts;
+    private DirectedGraph graph;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        workload = GraphBenchmark.workload(shape, size, random);
+        starts = new int[1024];
+        for (int i = 0; i < starts.length; ++i)
+            starts[i] = workload.from[random.nextInt(workload.from.length)];
+    }
+
+    @Setup(Level.Iteration)
+    public void build() {
+        graph = workload.build();
+    }
+
+    @Benchmark
+    public void addEdge(Blackhole blackhole) {
+        DirectedGraph graph = new DirectedGraph();
+        for (int i = 0; i < workload.from.length; ++i)
+            blackhole.consume(graph.addEdge(workload.from[i], workload.to[i]));
+        blackhole.consume(graph);
+    }
+
+    @Benchmark
+    public DirectedGraph addEdges() {
+        DirectedGraph graph = new DirectedGraph();
+        graph.addEdges(workload.from, workload.to);
+        return graph;
+    }
+
+    @Benchmark
+    public void deleteEdge(Blackhole blackhole) {
+        for (int i = workload.from.length - 1; i >= 0; --i)
+            blackhole.consume(graph.deleteEdge(workload.from[i], workload.to[i]));
+    }
+
+    @Benchmark
+    public void deleteVertex(Blackhole blackhole) {
+        for (int start : starts)
+            blackhole.consume(graph.deleteVertex(start));
+    }
+
+    @Benchmark
+    public void edgeRedirect(Blackhole blackhole) {
+        for (int i = 0; i < workload.from.length; ++i)
+            blackhole.consume(graph.edgeRedirect(workload.from[i], workload.to[i]));
+    }
+}
@@ -0,0 +1,1027 @@
+package graph;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Потокобезопасный направленный граф с тем же набором операций, что
+// и DirectedGraph. Вершины распределены по полосам (stripes) по хешу ID,
+// у каждой полосы своя блокировка чтения/записи. Добавление, удаление
+// и перенаправление ребра блокируют только полосы его двух вершин, поэтому
+// запись из разных потоков идёт параллельно. Запросы по всему графу берут
+// блокировки чтения всех полос и видят согласованное состояние.
+// Порядок рёбер задаётся глобальным счётчиком: у каждого ребра есть номер,
+// и списки смежности упорядочены по номерам рёбер, как в DirectedGraph.
+// Порядок вершин отличается: запросы по всем вершинам возвращают их
+// в порядке добавления, а DirectedGraph при удалении вершины ставит на её
+// место последнюю. Поэтому набор вершин в ответах тот же, а порядок может
+// быть другим (порядок рёбер, соседей и обхода за n ходов совпадает).
+// Получатели (IntConsumer), потоки и итераторы работают с копией
+// результата, снятой под блокировками, и вызываются уже без блокировок:
+// получатель может менять граф, а результат от этого не меняется
+public class ConcurrentDirectedGraph {
+    // Списки смежности вершин полосы в одном направлении. Как в DirectedGraph,
+    // удалённый сосед не вырезается из списка, а его место помечается,
+    // и место каждого ребра в списке известно по индексу рёбер. Поэтому
+    // удаление не ищет соседа и не сдвигает остальных. Когда помеченных мест
+    // становится больше, чем соседей, список уплотняется
+    private static final class Lists {
+        // Для каждой вершины полосы: ID соседей, номера рёбер (по возрастанию,
+        // помеченное место сохраняет номер) и номер записи ребра (-1 на
+        // помеченном месте). Список занимает первые length мест, соседей в нём count
+        int[][] ids = new int[8][];
+        long[][] sequences = new long[8][];
+        int[][] entries = new int[8][];
+        int[] length = new int[8];
+        int[] count = new int[8];
+        // Рёбра списков: упакованная пара ID вершин -> номер записи,
+        // positions[запись] - место ребра в списке. Номера освободившихся
+        // записей используются повторно
+        final LongIntHashMap index = new LongIntHashMap();
+        int[] positions = new int[8];
+        int[] freeEntries = new int[8];
+        int freeCount = 0;
+        int usedEntries = 0;
+
+        void grow(int newLength) {
+            ids = java.util.Arrays.copyOf(ids, newLength);
+            sequences = java.util.Arrays.copyOf(sequences, newLength);
+            entries = java.util.Arrays.copyOf(entries, newLength);
+            length = java.util.Arrays.copyOf(length, newLength);
+            count = java.util.Arrays.copyOf(count, newLength);
+        }
+
+        void init(int slot) {
+            ids[slot] = new int[0];
+            sequences[slot] = new long[0];
+            entries[slot] = new int[0];
+            length[slot] = 0;
+            count[slot] = 0;
+        }
+
+        // Метод, переносящий список вершины from на место to (места рёбер
+        // внутри списка не меняются, поэтому positions остаются верными)
+        void move(int from, int to) {
+            ids[to] = ids[from];
+            sequences[to] = sequences[from];
+            entries[to] = entries[from];
+            length[to] = length[from];
+            count[to] = count[from];
+        }
+
+        void clear(int slot) {
+            ids[slot] = null;
+            sequences[slot] = null;
+            entries[slot] = null;
+        }
+
+        // Метод, вставляющий в список вершины slot соседа с ребром key так,
+        // чтобы список остался упорядоченным по номерам рёбер
+        void insert(int slot, long key, int neighbourId, long sequence) {
+            int entry;
+            if (freeCount > 0) {
+                entry = freeEntries[--freeCount];
+            } else {
+                if (usedEntries == positions.length)
+                    positions = java.util.Arrays.copyOf(positions, usedEntries * 2);
+                entry = usedEntries++;
+            }
+            index.put(key, entry);
+
+            int size = length[slot];
+            if (size == ids[slot].length) {
+                int newLength = Math.max(4, size * 2);
+                ids[slot] = java.util.Arrays.copyOf(ids[slot], newLength);
+                sequences[slot] = java.util.Arrays.copyOf(sequences[slot], newLength);
+                entries[slot] = java.util.Arrays.copyOf(entries[slot], newLength);
+            }
+            int[] neighbours = ids[slot];
+            long[] numbers = sequences[slot];
+            int[] listEntries = entries[slot];
+
+            // Место ищется двоичным поиском (новое ребро встаёт в конец списка)
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (numbers[middle] < sequence)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            for (int i = size; i > low; --i) {
+                neighbours[i] = neighbours[i - 1];
+                numbers[i] = numbers[i - 1];
+                listEntries[i] = listEntries[i - 1];
+                if (listEntries[i] != -1)
+                    positions[listEntries[i]] = i;
+            }
+            neighbours[low] = neighbourId;
+            numbers[low] = sequence;
+            listEntries[low] = entry;
+            positions[entry] = low;
+            length[slot] = size + 1;
+            ++count[slot];
+        }
+
+        // Метод, удаляющий ребро key из списка вершины slot за O(1)
+        // (амортизированно). Возвращает номер ребра или -1, если ребра нет
+        long remove(int slot, long key) {
+            int entry = index.remove(key);
+            if (entry == LongIntHashMap.NO_VALUE)
+                return -1;
+
+            if (freeCount == freeEntries.length)
+                freeEntries = java.util.Arrays.copyOf(freeEntries, freeCount * 2);
+            freeEntries[freeCount++] = entry;
+
+            int[] listEntries = entries[slot];
+            int position = positions[entry];
+            long sequence = sequences[slot][position];
+            listEntries[position] = -1;
+            --count[slot];
+
+            // Помеченные места в конце списка сразу отбрасываются
+            int size = length[slot];
+            while (size > 0 && listEntries[size - 1] == -1)
+                --size;
+            length[slot] = size;
+            if (size - count[slot] > count[slot])
+                compact(slot);
+
+            return sequence;
+        }
+
+        // Метод, убирающий помеченные места из списка вершины slot
+        void compact(int slot) {
+            int[] neighbours = ids[slot];
+            long[] numbers = sequences[slot];
+            int[] listEntries = entries[slot];
+            int size = 0;
+            for (int i = 0; i < length[slot]; ++i)
+                if (listEntries[i] != -1) {
+                    neighbours[size] = neighbours[i];
+                    numbers[size] = numbers[i];
+                    listEntries[size] = listEntries[i];
+                    positions[listEntries[i]] = size;
+                    ++size;
+                }
+            length[slot] = size;
+        }
+
+        // Метод, возвращающий ID соседей вершины slot по порядку рёбер
+        int[] neighbours(int slot) {
+            int[] result = new int[count[slot]];
+            int size = 0;
+            for (int i = 0; i < length[slot]; ++i)
+                if (entries[slot][i] != -1)
+                    result[size++] = ids[slot][i];
+
+            return result;
+        }
+    }
+
+    // Полоса - часть графа: вершины с ID, попавшими в неё, их списки
+    // смежности и рёбра, начинающиеся в этих вершинах
+    private static final class Stripe {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final int number;
+
+        // ID вершины -> номер вершины в массивах полосы
+        final IntIntHashMap vertexIndex = new IntIntHashMap();
+        int[] vertexIds = new int[8];
+        // Номер создания вершины (для порядка вершин в результатах)
+        long[] vertexSequence = new long[8];
+        int vertexCount = 0;
+        // Прямые и обратные списки смежности. Индекс прямых списков - это
+        // рёбра, начинающиеся в вершинах полосы. Число соседей в прямом
+        // списке - число выходящих рёбер; петля входит в обратный список,
+        // но не в inDegree
+        final Lists out = new Lists();
+        final Lists in = new Lists();
+        int[] inDegree = new int[8];
+
+        Stripe(int number) {
+            this.number = number;
+        }
+
+        // Метод, возвращающий номер вершины, при необходимости добавляя её
+        int vertexSlot(int vertexId, AtomicLong sequence) {
+            int slot = vertexIndex.get(vertexId);
+            if (slot != -1)
+                return slot;
+
+            if (vertexCount == vertexIds.length) {
+                int newLength = vertexIds.length * 2;
+                vertexIds = java.util.Arrays.copyOf(vertexIds, newLength);
+                vertexSequence = java.util.Arrays.copyOf(vertexSequence, newLength);
+                inDegree = java.util.Arrays.copyOf(inDegree, newLength);
+                out.grow(newLength);
+                in.grow(newLength);
+            }
+
+            slot = vertexCount++;
+            vertexIds[slot] = vertexId;
+            vertexSequence[slot] = sequence.getAndIncrement();
+            inDegree[slot] = 0;
+            out.init(slot);
+            in.init(slot);
+            vertexIndex.put(vertexId, slot);
+
+            return slot;
+        }
+
+        // Метод, удаляющий вершину без рёбер: на её место встаёт последняя
+        void removeVertex(int slot) {
+            int last = --vertexCount;
+            vertexIndex.remove(vertexIds[slot]);
+            if (slot != last) {
+                vertexIds[slot] = vertexIds[last];
+                vertexSequence[slot] = vertexSequence[last];
+                inDegree[slot] = inDegree[last];
+                out.move(last, slot);
+                in.move(last, slot);
+                vertexIndex.put(vertexIds[slot], slot);
+            }
+            out.clear(last);
+            in.clear(last);
+        }
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    // Счётчики номеров рёбер и вершин
+    private final AtomicLong edgeSequence = new AtomicLong();
+    private final AtomicLong vertexSequence = new AtomicLong();
+
+    // По умолчанию полос в несколько раз больше, чем процессоров
+    public ConcurrentDirectedGraph() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public ConcurrentDirectedGraph(int stripeCount) {
+        if (stripeCount <= 0 || stripeCount > (1 << 16))
+            throw new IllegalArgumentException("Invalid stripe count: " + stripeCount);
+
+        // Число полос округляется вверх до степени двойки
+        int count = 1;
+        while (count < stripeCount)
+            count <<= 1;
+
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; ++i)
+            stripes[i] = new Stripe(i);
+        stripeMask = count - 1;
+    }
+
+    private static long edgeKey(int vertexFrom, int vertexTo) {
+        return ((long) vertexFrom << 32) | (vertexTo & 0xFFFFFFFFL);
+    }
+
+    // Полоса, в которую попадает вершина. Перемешивание отличается от
+    // хеша IntIntHashMap, иначе ключи одной полосы собирались бы в одной
+    // части её таблицы вершин
+    private Stripe stripe(int vertexId) {
+        long h = vertexId * 0xC2B2AE3D27D4EB4FL;
+        return stripes[(int) (h >>> 32) & stripeMask];
+    }
+
+    // Блокировки записи двух полос берутся в порядке номеров полос,
+    // чтобы потоки не ждали друг друга по кругу
+    private static void lockWrite(Stripe a, Stripe b) {
+        if (a.number > b.number) {
+            Stripe buff = a;
+            a = b;
+            b = buff;
+        }
+        a.lock.writeLock().lock();
+        if (a != b)
+            b.lock.writeLock().lock();
+    }
+
+    private static void unlockWrite(Stripe a, Stripe b) {
+        if (a != b)
+            b.lock.writeLock().unlock();
+        a.lock.writeLock().unlock();
+    }
+
+    private void lockAllRead() {
+        for (Stripe s : stripes)
+            s.lock.readLock().lock();
+    }
+
+    private void unlockAllRead() {
+        for (int i = stripes.length - 1; i >= 0; --i)
+            stripes[i].lock.readLock().unlock();
+    }
+
+    private void lockAllWrite() {
+        for (Stripe s : stripes)
+            s.lock.writeLock().lock();
+    }
+
+    private void unlockAllWrite() {
+        for (int i = stripes.length - 1; i >= 0; --i)
+            stripes[i].lock.writeLock().unlock();
+    }
+
+    public boolean addEdge(int vertexFrom, int vertexTo) {
+        Stripe a = stripe(vertexFrom), b = stripe(vertexTo);
+        lockWrite(a, b);
+        try {
+            return addEdgeLocked(vertexFrom, vertexTo, a, b);
+        } finally {
+            unlockWrite(a, b);
+        }
+    }
+
+    private boolean addEdgeLocked(int vertexFrom, int vertexTo, Stripe a, Stripe b) {
+        if (a.out.index.containsKey(edgeKey(vertexFrom, vertexTo)))
+            return false;
+
+        insertEdgeLocked(vertexFrom, vertexTo, a, b, edgeSequence.getAndIncrement());
+        return true;
+    }
+
+    // Вспомогательный метод, вставляющий ребро с указанным номером
+    // (при необходимости добавляя его вершины)
+    private void insertEdgeLocked(int vertexFrom, int vertexTo, Stripe a, Stripe b, long sequence) {
+        long key = edgeKey(vertexFrom, vertexTo);
+        int fromSlot = a.vertexSlot(vertexFrom, vertexSequence);
+        int toSlot = b.vertexSlot(vertexTo, vertexSequence);
+        a.out.insert(fromSlot, key, vertexTo, sequence);
+        b.in.insert(toSlot, key, vertexFrom, sequence);
+        if (vertexFrom != vertexTo)
+            ++b.inDegree[toSlot];
+    }
+
+    // Метод массового добавления рёбер (петли отбрасываются, как
+    // в DirectedGraph.addEdges). Возвращает число добавленных рёбер
+    public int addEdges(int[] vertexFrom, int[] vertexTo) {
+        if (vertexFrom.length != vertexTo.length)
+            throw new IllegalArgumentException("Arrays of edge ends differ in length: "
+                    + vertexFrom.length + " and " + vertexTo.length);
+
+        int added = 0;
+        for (int i = 0; i < vertexFrom.length; ++i)
+            if (vertexFrom[i] != vertexTo[i] && addEdge(vertexFrom[i], vertexTo[i]))
+                ++added;
+
+        return added;
+    }
+
+    public boolean deleteEdge(int vertexFrom, int vertexTo) {
+        Stripe a = stripe(vertexFrom), b = stripe(vertexTo);
+        lockWrite(a, b);
+        try {
+            return deleteEdgeLocked(vertexFrom, vertexTo, a, b) != -1;
+        } finally {
+            unlockWrite(a, b);
+        }
+    }
+
+    // Удаление ребра, когда блокировки уже взяты. Возвращает номер
+    // удалённого ребра или -1, если ребра нет
+    private long deleteEdgeLocked(int vertexFrom, int vertexTo, Stripe a, Stripe b) {
+        long key = edgeKey(vertexFrom, vertexTo);
+        if (!a.out.index.containsKey(key))
+            return -1;
+
+        int toSlot = b.vertexIndex.get(vertexTo);
+        long sequence = a.out.remove(a.vertexIndex.get(vertexFrom), key);
+        b.in.remove(toSlot, key);
+        if (vertexFrom != vertexTo)
+            --b.inDegree[toSlot];
+
+        return sequence;
+    }
+
+    // Метод, меняющий направление ребра (ребро сохраняет своё место в порядке рёбер)
+    public boolean edgeRedirect(int vertexFrom, int vertexTo) {
+        if (vertexFrom == vertexTo)
+            return false;
+
+        Stripe a = stripe(vertexFrom), b = stripe(vertexTo);
+        lockWrite(a, b);
+        try {
+            if (!a.out.index.containsKey(edgeKey(vertexFrom, vertexTo))
+                    || b.out.index.containsKey(edgeKey(vertexTo, vertexFrom)))
+                return false;
+
+            long sequence = deleteEdgeLocked(vertexFrom, vertexTo, a, b);
+            insertEdgeLocked(vertexTo, vertexFrom, b, a, sequence);
+
+            return true;
+        } finally {
+            unlockWrite(a, b);
+        }
+    }
+
+    // Метод, создающий пустой пакет изменений графа
+    public Batch batch() {
+        return new Batch();
+    }
+
+    // Пакет изменений, как DirectedGraph.Batch: операции addEdge, deleteEdge
+    // и edgeRedirect накапливаются и применяются вместе методом apply()
+    // под блокировками записи всех полос, поэтому другие потоки видят граф
+    // либо до пакета, либо после. Пакет применяется целиком или никак: если
+    // при применении возникло исключение, уже применённые операции
+    // отменяются в обратном порядке
+    public class Batch {
+        private static final byte ADD = 0;
+        private static final byte DELETE = 1;
+        private static final byte REDIRECT = 2;
+
+        private byte[] kinds = new byte[16];
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int size = 0;
+
+        private Batch() {
+        }
+
+        private Batch add(byte kind, int vertexFrom, int vertexTo) {
+            if (size == kinds.length) {
+                int newLength = size * 2;
+                kinds = java.util.Arrays.copyOf(kinds, newLength);
+                from = java.util.Arrays.copyOf(from, newLength);
+                to = java.util.Arrays.copyOf(to, newLength);
+            }
+
+            kinds[size] = kind;
+            from[size] = vertexFrom;
+            to[size] = vertexTo;
+            ++size;
+            return this;
+        }
+
+        public Batch addEdge(int vertexFrom, int vertexTo) {
+            return add(ADD, vertexFrom, vertexTo);
+        }
+
+        public Batch deleteEdge(int vertexFrom, int vertexTo) {
+            return add(DELETE, vertexFrom, vertexTo);
+        }
+
+        public Batch edgeRedirect(int vertexFrom, int vertexTo) {
+            return add(REDIRECT, vertexFrom, vertexTo);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Метод, применяющий пакет к графу. Возвращает результаты операций
+        // по порядку, после применения пакет становится пустым
+        public boolean[] apply() {
+            boolean[] results = new boolean[size];
+            // Журнал применённых операций: номер операции, номер удалённого
+            // ребра и признаки вершин, созданных добавлением
+            int[] applied = new int[size];
+            long[] sequences = new long[size];
+            byte[] createdVertices = new byte[size];
+            int appliedCount = 0;
+
+            lockAllWrite();
+            try {
+                try {
+                    for (int i = 0; i < size; ++i) {
+                        Stripe a = stripe(from[i]), b = stripe(to[i]);
+                        switch (kinds[i]) {
+                            case ADD:
+                                byte created = 0;
+                                if (a.vertexIndex.get(from[i]) == -1)
+                                    created |= 1;
+                                if (from[i] != to[i] && b.vertexIndex.get(to[i]) == -1)
+                                    created |= 2;
+                                createdVertices[appliedCount] = created;
+                                results[i] = addEdgeLocked(from[i], to[i], a, b);
+                                break;
+                            case DELETE:
+                                sequences[appliedCount] = deleteEdgeLocked(from[i], to[i], a, b);
+                                results[i] = sequences[appliedCount] != -1;
+                                break;
+                            default:
+                                results[i] = ConcurrentDirectedGraph.this.edgeRedirect(from[i], to[i]);
+                                break;
+                        }
+
+                        if (results[i]) {
+                            applied[appliedCount] = i;
+                            ++appliedCount;
+                        }
+                    }
+                } catch (RuntimeException | Error e) {
+                    for (int k = appliedCount - 1; k >= 0; --k)
+                        undo(applied[k], sequences[k], createdVertices[k]);
+                    throw e;
+                }
+            } finally {
+                unlockAllWrite();
+            }
+
+            size = 0;
+            return results;
+        }
+
+        // Вспомогательный метод, отменяющий применённую операцию пакета
+        private void undo(int operation, long sequence, byte created) {
+            int vertexFrom = from[operation], vertexTo = to[operation];
+            Stripe a = stripe(vertexFrom), b = stripe(vertexTo);
+            switch (kinds[operation]) {
+                case ADD:
+                    deleteEdgeLocked(vertexFrom, vertexTo, a, b);
+                    if ((created & 2) != 0)
+                        b.removeVertex(b.vertexIndex.get(vertexTo));
+                    if ((created & 1) != 0)
+                        a.removeVertex(a.vertexIndex.get(vertexFrom));
+                    break;
+                case DELETE:
+                    insertEdgeLocked(vertexFrom, vertexTo, a, b, sequence);
+                    break;
+                default:
+                    ConcurrentDirectedGraph.this.edgeRedirect(vertexTo, vertexFrom);
+                    break;
+            }
+        }
+    }
+
+    // Метод, удаляющий вершину вместе с её рёбрами. Блокируются полоса
+    // вершины и полосы её соседей. Соседи читаются до взятия блокировок
+    // записи, поэтому после их взятия проверяется, что соседи не изменились
+    // (иначе попытка повторяется)
+    public boolean deleteVertex(int vertexId) {
+        Stripe own = stripe(vertexId);
+        boolean[] needed = new boolean[stripes.length];
+        while (true) {
+            java.util.Arrays.fill(needed, false);
+            own.lock.readLock().lock();
+            try {
+                int slot = own.vertexIndex.get(vertexId);
+                if (slot == -1)
+                    return false;
+                markNeighbourStripes(own, slot, needed);
+            } finally {
+                own.lock.readLock().unlock();
+            }
+
+            for (int i = 0; i < stripes.length; ++i)
+                if (needed[i])
+                    stripes[i].lock.writeLock().lock();
+            try {
+                int slot = own.vertexIndex.get(vertexId);
+                if (slot == -1)
+                    return false;
+                if (coversNeighbours(own, slot, needed)) {
+                    deleteVertexLocked(vertexId);
+                    return true;
+                }
+            } finally {
+                for (int i = stripes.length - 1; i >= 0; --i)
+                    if (needed[i])
+                        stripes[i].lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void markNeighbourStripes(Stripe own, int slot, boolean[] needed) {
+        needed[own.number] = true;
+        for (Lists lists : new Lists[] {own.out, own.in})
+            for (int i = 0; i < lists.length[slot]; ++i)
+                if (lists.entries[slot][i] != -1)
+                    needed[stripe(lists.ids[slot][i]).number] = true;
+    }
+
+    private boolean coversNeighbours(Stripe own, int slot, boolean[] needed) {
+        for (Lists lists : new Lists[] {own.out, own.in})
+            for (int i = 0; i < lists.length[slot]; ++i)
+                if (lists.entries[slot][i] != -1 && !needed[stripe(lists.ids[slot][i]).number])
+                    return false;
+
+        return true;
+    }
+
+    // Удаление вершины, когда блокировки записи уже взяты
+    private void deleteVertexLocked(int vertexId) {
+        Stripe own = stripe(vertexId);
+        int slot = own.vertexIndex.get(vertexId);
+        int[] successors = own.out.neighbours(slot);
+        int[] predecessors = own.in.neighbours(slot);
+        for (int successor : successors)
+            deleteEdgeLocked(vertexId, successor, own, stripe(successor));
+        for (int predecessor : predecessors)
+            if (predecessor != vertexId)
+                deleteEdgeLocked(predecessor, vertexId, stripe(predecessor), own);
+
+        own.removeVertex(own.vertexIndex.get(vertexId));
+    }
+
+    // Метод, удаляющий вершины, у которых наименьшая разность (по модулю)
+    // числа входящих и выходящих рёбер. Выполняется под блокировкой всего графа
+    public boolean deleteVerticesWithMinDegreeDifference() {
+        lockAllWrite();
+        try {
+            int minDifference = -1;
+            for (Stripe s : stripes)
+                for (int i = 0; i < s.vertexCount; ++i) {
+                    int difference = Math.abs(s.inDegree[i] - s.out.count[i]);
+                    if (difference < minDifference || minDifference == -1)
+                        minDifference = difference;
+                }
+
+            if (minDifference == -1)
+                return false;
+
+            // Набор удаляемых вершин определяется до удаления, как в DirectedGraph
+            int[] ids = new int[vertexCountLocked()];
+            long[] sequences = new long[ids.length];
+            int count = 0;
+            for (Stripe s : stripes)
+                for (int i = 0; i < s.vertexCount; ++i)
+                    if (Math.abs(s.inDegree[i] - s.out.count[i]) == minDifference) {
+                        ids[count] = s.vertexIds[i];
+                        sequences[count] = s.vertexSequence[i];
+                        ++count;
+                    }
+
+            for (int vertexId : orderedBySequence(ids, sequences, count))
+                deleteVertexLocked(vertexId);
+
+            return true;
+        } finally {
+            unlockAllWrite();
+        }
+    }
+
+    // Метод, разбивающий вершины на слои так, как их удаляли бы повторные
+    // вызовы deleteVerticesWithMinDegreeDifference() (см.
+    // DirectedGraph.minDegreeDifferenceLayers). Слои считаются по копии
+    // графа, снятой под блокировками чтения всех полос
+    public DirectedGraph.Layers minDegreeDifferenceLayers() {
+        return this.toDirectedGraph().minDegreeDifferenceLayers();
+    }
+
+    // Метод, удаляющий первые layerCount слоёв вершин с минимальной
+    // разностью входящих и исходящих рёбер за O(V + E). Выполняется под
+    // блокировкой всего графа. Возвращает число удалённых вершин
+    public int peelMinDegreeDifference(int layerCount) {
+        if (layerCount < 0)
+            throw new IllegalArgumentException("Negative layer count: " + layerCount);
+
+        lockAllWrite();
+        try {
+            DirectedGraph.Layers layers = this.toDirectedGraphLocked().minDegreeDifferenceLayers();
+            int deleted = 0;
+            while (deleted < layers.vertexIds.length && layers.layers[deleted] < layerCount)
+                deleteVertexLocked(layers.vertexIds[deleted++]);
+
+            return deleted;
+        } finally {
+            unlockAllWrite();
+        }
+    }
+
+    // Фильтр вершин по числу выходящих и входящих рёбер
+    private interface DegreeFilter {
+        boolean test(int outDegree, int inDegree);
+    }
+
+    // Вспомогательный метод, возвращающий вершины, прошедшие фильтр,
+    // в порядке их добавления в граф
+    private int[] selectVertices(DegreeFilter filter) {
+        lockAllRead();
+        try {
+            int[] ids = new int[vertexCountLocked()];
+            long[] sequences = new long[ids.length];
+            int count = 0;
+            for (Stripe s : stripes)
+                for (int i = 0; i < s.vertexCount; ++i)
+                    if (filter.test(s.out.count[i], s.inDegree[i])) {
+                        ids[count] = s.vertexIds[i];
+                        sequences[count] = s.vertexSequence[i];
+                        ++count;
+                    }
+
+            return orderedBySequence(ids, sequences, count);
+        } finally {
+            unlockAllRead();
+        }
+    }
+
+    // Вспомогательный метод, упорядочивающий первые count элементов ids
+    // по возрастанию номеров sequences (номера различны)
+    static int[] orderedBySequence(int[] ids, long[] sequences, int count) {
+        LongIntHashMap position = new LongIntHashMap(count);
+        for (int i = 0; i < count; ++i)
+            position.put(sequences[i], i);
+
+        long[] sorted = java.util.Arrays.copyOf(sequences, count);
+        java.util.Arrays.sort(sorted);
+        int[] result = new int[count];
+        for (int i = 0; i < count; ++i)
+            result[i] = ids[position.get(sorted[i])];
+
+        return result;
+    }
+
+    // Метод, возвращающий список вершин с указанным числом рёбер и более
+    public int[] verticesWithMinDegree(int vertexDegree) {
+        return selectVertices((out, in) -> out + in >= vertexDegree);
+    }
+
+    // Метод, возвращающий список вершин таких, что число рёбер входящих
+    // в вершину больше числа рёбер выходящих из вершины
+    public int[] verticesWithInDominantDegree() {
+        return selectVertices((out, in) -> in > out);
+    }
+
+    // Метод, возвращающий список вершин, куда ведёт указанная вершина
+    public int[] successors(int vertexId) {
+        Stripe s = stripe(vertexId);
+        s.lock.readLock().lock();
+        try {
+            int slot = s.vertexIndex.get(vertexId);
+            return slot == -1 ? new int[0] : s.out.neighbours(slot);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    // Метод, возвращающий список вершин, из которых ведут рёбра в указанную
+    public int[] predecessors(int vertexId) {
+        Stripe s = stripe(vertexId);
+        s.lock.readLock().lock();
+        try {
+            int slot = s.vertexIndex.get(vertexId);
+            return slot == -1 ? new int[0] : s.in.neighbours(slot);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    // Метод, возвращающий список ID вершин, достижимых за два хода от указанной
+    public int[] verticesWithinTwoSteps(int vertexId) {
+        return verticesWithinNSteps(vertexId, 2);
+    }
+
+    // Метод, возвращающий список вершин, достижимых за n ходов из указанной вершины
+    public int[] verticesWithinNSteps(int vertexId, int n) {
+        return walkNSteps(vertexId, n, false);
+    }
+
+    // Метод, возвращающий список вершин, из которых указанная вершина
+    // достижима за n ходов
+    public int[] verticesWithinNStepsReverse(int vertexId, int n) {
+        return walkNSteps(vertexId, n, true);
+    }
+
+    // Обход в ширину по уровням, как в DirectedGraph. Вершина уже добавлена
+    // на уровень step, если в visited ей сопоставлен номер step
+    private int[] walkNSteps(int vertexId, int n, boolean reverse) {
+        if (n <= 0)
+            return new int[0];
+
+        lockAllRead();
+        try {
+            if (stripe(vertexId).vertexIndex.get(vertexId) == -1)
+                return new int[0];
+
+            IntIntHashMap visited = new IntIntHashMap();
+            int[] frontier = {vertexId};
+            int count = 1;
+            int[] next = new int[4];
+            for (int step = 0; step < n && count > 0; ++step) {
+                int nextCount = 0;
+                for (int i = 0; i < count; ++i) {
+                    Stripe s = stripe(frontier[i]);
+                    int slot = s.vertexIndex.get(frontier[i]);
+                    Lists lists = reverse ? s.in : s.out;
+                    int[] neighbours = lists.ids[slot];
+                    int[] entries = lists.entries[slot];
+                    int size = lists.length[slot];
+                    for (int j = 0; j < size; ++j)
+                        if (entries[j] != -1 && visited.get(neighbours[j]) != step) {
+                            visited.put(neighbours[j], step);
+                            if (nextCount == next.length)
+                                next = java.util.Arrays.copyOf(next, nextCount * 2);
+                            next[nextCount++] = neighbours[j];
+                        }
+                }
+
+                int[] buff = frontier;
+                frontier = next;
+                next = buff.length > 0 ? buff : new int[4];
+                count = nextCount;
+            }
+
+            return java.util.Arrays.copyOf(frontier, count);
+        } finally {
+            unlockAllRead();
+        }
+    }
+
+    // Метод, передающий получателю вершины с указанным числом рёбер и более
+    public void verticesWithMinDegree(int vertexDegree, java.util.function.IntConsumer sink) {
+        for (int vertexId : verticesWithMinDegree(vertexDegree))
+            sink.accept(vertexId);
+    }
+
+    // Метод, передающий получателю вершины, у которых входящих рёбер больше, чем выходящих
+    public void verticesWithInDominantDegree(java.util.function.IntConsumer sink) {
+        for (int vertexId : verticesWithInDominantDegree())
+            sink.accept(vertexId);
+    }
+
+    public java.util.stream.IntStream verticesWithMinDegreeStream(int vertexDegree) {
+        return java.util.stream.IntStream.of(verticesWithMinDegree(vertexDegree));
+    }
+
+    public java.util.stream.IntStream verticesWithInDominantDegreeStream() {
+        return java.util.stream.IntStream.of(verticesWithInDominantDegree());
+    }
+
+    // Метод, передающий получателю вершины, достижимые за n ходов из указанной вершины
+    public void verticesWithinNSteps(int vertexId, int n, java.util.function.IntConsumer sink) {
+        for (int reached : walkNSteps(vertexId, n, false))
+            sink.accept(reached);
+    }
+
+    public void verticesWithinNStepsReverse(int vertexId, int n, java.util.function.IntConsumer sink) {
+        for (int reached : walkNSteps(vertexId, n, true))
+            sink.accept(reached);
+    }
+
+    // Метод, возвращающий итератор по вершинам, куда ведёт указанная вершина
+    public java.util.PrimitiveIterator.OfInt successorsIterator(int vertexId) {
+        return java.util.stream.IntStream.of(successors(vertexId)).iterator();
+    }
+
+    // Метод, возвращающий итератор по вершинам, из которых ведут рёбра в указанную
+    public java.util.PrimitiveIterator.OfInt predecessorsIterator(int vertexId) {
+        return java.util.stream.IntStream.of(predecessors(vertexId)).iterator();
+    }
+
+    private int vertexCountLocked() {
+        int count = 0;
+        for (Stripe s : stripes)
+            count += s.vertexCount;
+
+        return count;
+    }
+
+    public int vertexCount() {
+        lockAllRead();
+        try {
+            return vertexCountLocked();
+        } finally {
+            unlockAllRead();
+        }
+    }
+
+    public int edgeCount() {
+        lockAllRead();
+        try {
+            int count = 0;
+            for (Stripe s : stripes)
+                count += s.out.index.size();
+
+            return count;
+        } finally {
+            unlockAllRead();
+        }
+    }
+
+    public void printVertices() {
+        int[] ids = verticesWithMinDegree(Integer.MIN_VALUE);
+        java.util.Arrays.sort(ids);
+        for (int i = 0; i < ids.length; ++i)
+            System.out.println((i + 1) + ". " + ids[i]);
+    }
+
+    // Метод, копирующий согласованное состояние графа в обычный DirectedGraph
+    // (вершины и рёбра в порядке их добавления)
+    public DirectedGraph toDirectedGraph() {
+        lockAllRead();
+        try {
+            return toDirectedGraphLocked();
+        } finally {
+            unlockAllRead();
+        }
+    }
+
+    private DirectedGraph toDirectedGraphLocked() {
+        int vertexCount = vertexCountLocked();
+        int[] ids = new int[vertexCount];
+        long[] sequences = new long[vertexCount];
+        int count = 0;
+        for (Stripe s : stripes)
+            for (int i = 0; i < s.vertexCount; ++i) {
+                ids[count] = s.vertexIds[i];
+                sequences[count] = s.vertexSequence[i];
+                ++count;
+            }
+        int[] orderedIds = orderedBySequence(ids, sequences, count);
+        IntIntHashMap vertexNumber = new IntIntHashMap(vertexCount);
+        for (int i = 0; i < vertexCount; ++i)
+            vertexNumber.put(orderedIds[i], i);
+
+        int edgeCount = 0;
+        for (Stripe s : stripes)
+            edgeCount += s.out.index.size();
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        long[] edgeNumbers = new long[edgeCount];
+        collectEdges(from, to, edgeNumbers);
+
+        // Рёбра упорядочиваются по номерам через перестановку их индексов
+        int[] order = orderedBySequence(identity(edgeCount), edgeNumbers, edgeCount);
+        int[] fromNumbers = new int[edgeCount];
+        int[] toNumbers = new int[edgeCount];
+        for (int i = 0; i < edgeCount; ++i) {
+            fromNumbers[i] = vertexNumber.get(from[order[i]]);
+            toNumbers[i] = vertexNumber.get(to[order[i]]);
+        }
+
+        return DirectedGraph.restore(java.nio.IntBuffer.wrap(orderedIds), java.nio.IntBuffer.wrap(fromNumbers),
+                java.nio.IntBuffer.wrap(toNumbers), vertexCount, edgeCount);
+    }
+
+    // Метод, строящий граф по DirectedGraph: вершины и рёбра добавляются
+    // в порядке массивов getVertices() и getEdges()
+    private static ConcurrentDirectedGraph fromDirectedGraph(DirectedGraph graph, int stripeCount) {
+        ConcurrentDirectedGraph result = new ConcurrentDirectedGraph(stripeCount);
+        for (DirectedGraph.Vertex vertex : graph.getVertices())
+            result.stripe(vertex.vertexId).vertexSlot(vertex.vertexId, result.vertexSequence);
+        for (DirectedGraph.Edge edge : graph.getEdges())
+            result.addEdge(edge.vertexFrom.vertexId, edge.vertexTo.vertexId);
+
+        return result;
+    }
+
+    // Операции над двумя графами выполняются над их копиями: каждый граф
+    // копируется под блокировками чтения всех своих полос, но блокировки
+    // двух графов одновременно не держатся, поэтому встречные вызовы
+    // a.plus(b) и b.plus(a) не ждут друг друга. Результат - новый граф
+    // с тем же числом полос
+
+    // Метод, складывающий два графа
+    public ConcurrentDirectedGraph plus(ConcurrentDirectedGraph graph) {
+        return fromDirectedGraph(this.toDirectedGraph().plus(graph.toDirectedGraph()), stripes.length);
+    }
+
+    // Метод, вычитающий из графа другой граф
+    public ConcurrentDirectedGraph minus(ConcurrentDirectedGraph graph) {
+        return fromDirectedGraph(this.toDirectedGraph().minus(graph.toDirectedGraph()), stripes.length);
+    }
+
+    // Метод, находящий пересечение графов
+    public ConcurrentDirectedGraph intersect(ConcurrentDirectedGraph graph) {
+        return fromDirectedGraph(this.toDirectedGraph().intersect(graph.toDirectedGraph()), stripes.length);
+    }
+
+    private static int[] identity(int count) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; ++i)
+            result[i] = i;
+
+        return result;
+    }
+
+    // Вспомогательный метод, собирающий все рёбра с их номерами
+    private void collectEdges(int[] from, int[] to, long[] edgeNumbers) {
+        int count = 0;
+        for (Stripe s : stripes)
+            for (int i = 0; i < s.vertexCount; ++i)
+                for (int j = 0; j < s.out.length[i]; ++j)
+                    if (s.out.entries[i][j] != -1) {
+                        from[count] = s.vertexIds[i];
+                        to[count] = s.out.ids[i][j];
+                        edgeNumbers[count] = s.out.sequences[i][j];
+                        ++count;
+                    }
+    }
+
+    @Override
+    public String toString() {
+        lockAllRead();
+        try {
+            int edgeCount = 0;
+            for (Stripe s : stripes)
+                edgeCount += s.out.index.size();
+            int[] from = new int[edgeCount];
+            int[] to = new int[edgeCount];
+            long[] edgeNumbers = new long[edgeCount];
+            collectEdges(from, to, edgeNumbers);
+
+            int[] order = orderedBySequence(identity(edgeCount), edgeNumbers, edgeCount);
+            StringBuilder res = new StringBuilder();
+            for (int i = 0; i < edgeCount; ++i)
+                res.append(i + 1).append(". From ").append(from[order[i]])
+                        .append(" -> To ").append(to[order[i]]).append('\n');
+
+            return res.toString();
+        } finally {
+            unlockAllRead();
+        }
+    }
+}
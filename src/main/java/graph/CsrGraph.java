@@ -0,0 +1,267 @@
+package graph;
+
+// Неизменяемое представление направленного графа в формате CSR (compressed
+// sparse row), оптимизированное для чтения. Соседи каждой вершины лежат
+// в одном массиве подряд, поэтому обход идёт последовательно по памяти.
+// Создаётся методами DirectedGraph.toCsr() и DirectedGraph.freeze()
+public class CsrGraph {
+    // ID вершин. Внутри представления вершина задаётся номером в этом массиве
+    private final int[] vertexIds;
+    // ID вершины -> номер вершины
+    private final IntIntHashMap vertexIndex;
+    // Рёбра, выходящие из вершины v: outTargets[outOffsets[v] .. outOffsets[v + 1])
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    // Рёбра, входящие в вершину v: inSources[inOffsets[v] .. inOffsets[v + 1])
+    private final int[] inOffsets;
+    private final int[] inSources;
+    // Есть ли у вершины петля (петля считается только выходящим ребром)
+    private final boolean[] selfLoop;
+
+    // Буферы обхода в ширину свои для каждого потока, т.к. представление
+    // может читаться из нескольких потоков одновременно. Буферы общие для
+    // всех представлений: у потока один набор, который растёт до размера
+    // наибольшего обойдённого графа, а не по набору на каждый граф.
+    // Отметки других графов старше текущей эпохи, поэтому не мешают
+    private static final ThreadLocal<Traversal> TRAVERSAL = ThreadLocal.withInitial(Traversal::new);
+    // Индекс достижимости, строится при первом обращении
+    private volatile ReachabilityIndex reachability = null;
+
+    private static class Traversal {
+        int[] visitStamp = new int[0];
+        int visitEpoch = 0;
+        int[] frontier = new int[0];
+        int[] nextFrontier = new int[0];
+    }
+
+    // Построение по массиву ID вершин и рёбрам, заданным номерами вершин.
+    // Рёбра раскладываются по вершинам сортировкой подсчётом за O(V + E),
+    // порядок соседей совпадает с порядком рёбер
+    CsrGraph(int[] vertexIds, int[] edgeFrom, int[] edgeTo, int edgeCount) {
+        int vertexCount = vertexIds.length;
+        this.vertexIds = vertexIds;
+        this.vertexIndex = new IntIntHashMap(vertexCount);
+        for (int i = 0; i < vertexCount; ++i)
+            vertexIndex.put(vertexIds[i], i);
+
+        outOffsets = new int[vertexCount + 1];
+        inOffsets = new int[vertexCount + 1];
+        selfLoop = new boolean[vertexCount];
+        // Подсчёт числа рёбер каждой вершины
+        for (int i = 0; i < edgeCount; ++i) {
+            ++outOffsets[edgeFrom[i] + 1];
+            ++inOffsets[edgeTo[i] + 1];
+            if (edgeFrom[i] == edgeTo[i])
+                selfLoop[edgeFrom[i]] = true;
+        }
+
+        // Префиксные суммы дают начало списка каждой вершины
+        for (int v = 0; v < vertexCount; ++v) {
+            outOffsets[v + 1] += outOffsets[v];
+            inOffsets[v + 1] += inOffsets[v];
+        }
+
+        outTargets = new int[edgeCount];
+        inSources = new int[edgeCount];
+        int[] outPosition = new int[vertexCount];
+        int[] inPosition = new int[vertexCount];
+        for (int v = 0; v < vertexCount; ++v) {
+            outPosition[v] = outOffsets[v];
+            inPosition[v] = inOffsets[v];
+        }
+
+        for (int i = 0; i < edgeCount; ++i) {
+            outTargets[outPosition[edgeFrom[i]]++] = edgeTo[i];
+            inSources[inPosition[edgeTo[i]]++] = edgeFrom[i];
+        }
+    }
+
+    // Построение по готовым массивам CSR (например, из снимка графа,
+    // см. GraphSnapshot): массивы не копируются и не пересортировываются,
+    // остаётся только построить индекс вершин и найти петли за O(V + E)
+    CsrGraph(int[] vertexIds, int[] outOffsets, int[] outTargets, int[] inOffsets, int[] inSources) {
+        int vertexCount = vertexIds.length;
+        this.vertexIds = vertexIds;
+        this.vertexIndex = new IntIntHashMap(vertexCount);
+        for (int i = 0; i < vertexCount; ++i)
+            vertexIndex.put(vertexIds[i], i);
+
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        selfLoop = new boolean[vertexCount];
+        for (int v = 0; v < vertexCount; ++v)
+            for (int j = outOffsets[v]; j < outOffsets[v + 1]; ++j)
+                if (outTargets[j] == v)
+                    selfLoop[v] = true;
+    }
+
+    // Массивы представления для записи снимка (не изменяются)
+    int[] outOffsets() {
+        return outOffsets;
+    }
+
+    int[] outTargets() {
+        return outTargets;
+    }
+
+    int[] inOffsets() {
+        return inOffsets;
+    }
+
+    int[] inSources() {
+        return inSources;
+    }
+
+    public int vertexCount() {
+        return vertexIds.length;
+    }
+
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    public boolean containsVertex(int vertexId) {
+        return vertexIndex.containsKey(vertexId);
+    }
+
+    // Число рёбер, выходящих из вершины (с петлёй)
+    private int outDegree(int vertex) {
+        return outOffsets[vertex + 1] - outOffsets[vertex];
+    }
+
+    // Число рёбер, входящих в вершину (без петли)
+    private int inDegree(int vertex) {
+        return inOffsets[vertex + 1] - inOffsets[vertex] - (selfLoop[vertex] ? 1 : 0);
+    }
+
+    // Вспомогательный метод, возвращающий массив нужной длины
+    private static int[] resized(int[] array, int count) {
+        int[] resized = new int[count];
+        System.arraycopy(array, 0, resized, 0, count);
+
+        return resized;
+    }
+
+    // Метод, возвращающий список вершин с указанным числом рёбер и более
+    public int[] verticesWithMinDegree(int vertexDegree) {
+        int[] result = new int[vertexIds.length];
+        int count = 0;
+        for (int v = 0; v < vertexIds.length; ++v)
+            if (outDegree(v) + inDegree(v) >= vertexDegree)
+                result[count++] = vertexIds[v];
+
+        return resized(result, count);
+    }
+
+    // Метод, возвращающий список вершин таких, что число рёбер входящих
+    // в вершину больше числа рёбер выходящих из вершины
+    public int[] verticesWithInDominantDegree() {
+        int[] result = new int[vertexIds.length];
+        int count = 0;
+        for (int v = 0; v < vertexIds.length; ++v)
+            if (inDegree(v) > outDegree(v))
+                result[count++] = vertexIds[v];
+
+        return resized(result, count);
+    }
+
+    // Метод, возвращающий ID вершин, куда ведут рёбра из указанной вершины
+    public int[] successors(int vertexId) {
+        return neighbours(vertexId, outOffsets, outTargets);
+    }
+
+    // Метод, возвращающий ID вершин, из которых ведут рёбра в указанную вершину
+    public int[] predecessors(int vertexId) {
+        return neighbours(vertexId, inOffsets, inSources);
+    }
+
+    private int[] neighbours(int vertexId, int[] offsets, int[] targets) {
+        int vertex = vertexIndex.get(vertexId);
+        if (vertex == -1)
+            return new int[0];
+
+        int[] result = new int[offsets[vertex + 1] - offsets[vertex]];
+        for (int i = 0; i < result.length; ++i)
+            result[i] = vertexIds[targets[offsets[vertex] + i]];
+
+        return result;
+    }
+
+    // Метод, возвращающий список ID вершин, достижимых за два хода от указанной
+    public int[] verticesWithinTwoSteps(int vertexId) {
+        return verticesWithinNSteps(vertexId, 2);
+    }
+
+    // Метод, возвращающий список вершин, достижимых за n ходов из указанной вершины
+    // (обход в ширину по уровням, как в DirectedGraph)
+    public int[] verticesWithinNSteps(int vertexId, int n) {
+        return walkNSteps(vertexId, n, outOffsets, outTargets);
+    }
+
+    // Метод, возвращающий список вершин, из которых указанная вершина
+    // достижима за n ходов
+    public int[] verticesWithinNStepsReverse(int vertexId, int n) {
+        return walkNSteps(vertexId, n, inOffsets, inSources);
+    }
+
+    // Метод, возвращающий индекс достижимости (см. ReachabilityIndex).
+    // Представление не изменяется, поэтому индекс строится один раз
+    public ReachabilityIndex reachabilityIndex() {
+        ReachabilityIndex index = reachability;
+        if (index == null) {
+            // Одновременный первый вызов из двух потоков построит индекс
+            // дважды, но оба результата одинаковы
+            index = new ReachabilityIndex(vertexIds, vertexIndex, outOffsets, outTargets, inOffsets, inSources);
+            reachability = index;
+        }
+
+        return index;
+    }
+
+    private int[] walkNSteps(int vertexId, int n, int[] offsets, int[] targets) {
+        int start = vertexIndex.get(vertexId);
+        if (n <= 0 || start == -1)
+            return new int[0];
+
+        Traversal t = TRAVERSAL.get();
+        if (t.visitStamp.length < vertexIds.length) {
+            t.visitStamp = new int[vertexIds.length];
+            t.frontier = new int[vertexIds.length];
+            t.nextFrontier = new int[vertexIds.length];
+        }
+
+        t.frontier[0] = start;
+        int count = 1;
+        for (int step = 0; step < n && count > 0; ++step) {
+            if (++t.visitEpoch == Integer.MAX_VALUE) {
+                java.util.Arrays.fill(t.visitStamp, 0);
+                t.visitEpoch = 1;
+            }
+
+            int nextCount = 0;
+            for (int i = 0; i < count; ++i) {
+                int vertex = t.frontier[i];
+                for (int j = offsets[vertex]; j < offsets[vertex + 1]; ++j) {
+                    int neighbour = targets[j];
+                    if (t.visitStamp[neighbour] != t.visitEpoch) {
+                        t.visitStamp[neighbour] = t.visitEpoch;
+                        t.nextFrontier[nextCount++] = neighbour;
+                    }
+                }
+            }
+
+            int[] buff = t.frontier;
+            t.frontier = t.nextFrontier;
+            t.nextFrontier = buff;
+            count = nextCount;
+        }
+
+        int[] result = new int[count];
+        for (int i = 0; i < count; ++i)
+            result[i] = vertexIds[t.frontier[i]];
+
+        return result;
+    }
+}
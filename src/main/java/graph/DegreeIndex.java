@@ -0,0 +1,342 @@
+package graph;
+
+// Индекс вершин DirectedGraph по степеням (см. DirectedGraph.degreeIndex()).
+// Для каждого вида степени вершины хранятся в массиве, упорядоченном по
+// убыванию степени и разбитом на корзины одинаковой степени. Добавление или
+// удаление ребра меняет степень вершины на 1, и вершина переходит в соседнюю
+// корзину одним обменом с крайней вершиной корзины, т.е. за O(1). Поэтому
+// лучшие k вершин находятся за O(k), вершины со степенью из отрезка [a, b] -
+// за время, пропорциональное ответу, а гистограмма - за O(наибольшая степень).
+// Индекс обновляется по событиям графа (GraphChangeListener)
+public class DegreeIndex implements GraphChangeListener {
+    // Вид степени. TOTAL - сумма входящих и выходящих рёбер (как в
+    // verticesWithMinDegree), IMBALANCE - модуль разности входящих и
+    // выходящих рёбер. Петля считается только выходящим ребром
+    public enum Kind {
+        IN, OUT, TOTAL, IMBALANCE
+    }
+
+    // Вершины, упорядоченные по убыванию одной из степеней. Вершины
+    // задаются номерами в массивах индекса
+    private static final class BucketOrder {
+        // order - номера вершин по убыванию степени, position - место
+        // вершины в order, degree - степень вершины
+        int[] order;
+        int[] position;
+        int[] degree;
+        // start[d] - место в order первой вершины со степенью d. Корзина d
+        // занимает места [start[d], start[d - 1]), корзина 0 - [start[0], size).
+        // Для степеней больше наибольшей start равно 0
+        int[] start = new int[1];
+        int size = 0;
+
+        BucketOrder(int capacity) {
+            order = new int[capacity];
+            position = new int[capacity];
+            degree = new int[capacity];
+        }
+
+        void ensureCapacity(int required) {
+            if (required > order.length) {
+                int newLength = Math.max(order.length * 2, required);
+                order = java.util.Arrays.copyOf(order, newLength);
+                position = java.util.Arrays.copyOf(position, newLength);
+                degree = java.util.Arrays.copyOf(degree, newLength);
+            }
+        }
+
+        // Конец корзины d (место после её последней вершины)
+        int end(int d) {
+            return d == 0 ? size : start[d - 1];
+        }
+
+        int maxDegree() {
+            return size == 0 ? 0 : degree[order[0]];
+        }
+
+        private void swap(int i, int j) {
+            int a = order[i];
+            int b = order[j];
+            order[i] = b;
+            order[j] = a;
+            position[b] = i;
+            position[a] = j;
+        }
+
+        // Новая вершина со степенью 0 встаёт в конец (в корзину 0)
+        void add(int vertex) {
+            order[size] = vertex;
+            position[vertex] = size;
+            degree[vertex] = 0;
+            ++size;
+        }
+
+        // Удаляемая вершина должна иметь степень 0
+        void remove(int vertex) {
+            swap(position[vertex], size - 1);
+            --size;
+        }
+
+        // Вершина встаёт в конец корзины d + 1 (на место первой вершины корзины d)
+        void increment(int vertex) {
+            int d = degree[vertex];
+            if (d + 1 >= start.length)
+                start = java.util.Arrays.copyOf(start, Math.max(start.length * 2, d + 2));
+            swap(position[vertex], start[d]);
+            ++start[d];
+            degree[vertex] = d + 1;
+        }
+
+        // Вершина встаёт в начало корзины d - 1 (на место последней вершины корзины d)
+        void decrement(int vertex) {
+            int d = degree[vertex];
+            swap(position[vertex], start[d - 1] - 1);
+            --start[d - 1];
+            degree[vertex] = d - 1;
+        }
+
+        // Номер вершины индекса vertex заменяется на newVertex
+        void renumber(int vertex, int newVertex) {
+            order[position[vertex]] = newVertex;
+            position[newVertex] = position[vertex];
+            degree[newVertex] = degree[vertex];
+        }
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    // ID вершины -> номер вершины в массивах индекса
+    private final IntIntHashMap vertexIndex;
+    private int[] vertexIds;
+    // Степени, по которым считаются TOTAL и IMBALANCE
+    private int[] inDegree;
+    private int[] outDegree;
+    private int vertexCount = 0;
+    private final BucketOrder[] orders = new BucketOrder[KINDS.length];
+
+    // Индекс строится по степеням вершин графа за O(V + наибольшая степень)
+    DegreeIndex(int[] graphVertexIds, int[] graphOutDegree, int[] graphInDegree, int graphVertexCount) {
+        int capacity = Math.max(graphVertexCount, 8);
+        vertexIndex = new IntIntHashMap(capacity);
+        vertexIds = new int[capacity];
+        inDegree = new int[capacity];
+        outDegree = new int[capacity];
+        for (int i = 0; i < KINDS.length; ++i)
+            orders[i] = new BucketOrder(capacity);
+
+        for (int i = 0; i < graphVertexCount; ++i) {
+            vertexIds[i] = graphVertexIds[i];
+            outDegree[i] = graphOutDegree[i];
+            inDegree[i] = graphInDegree[i];
+            vertexIndex.put(vertexIds[i], i);
+        }
+        vertexCount = graphVertexCount;
+        for (Kind kind : KINDS)
+            build(orders[kind.ordinal()], kind);
+    }
+
+    private int degreeOf(Kind kind, int vertex) {
+        switch (kind) {
+            case IN:
+                return inDegree[vertex];
+            case OUT:
+                return outDegree[vertex];
+            case TOTAL:
+                return inDegree[vertex] + outDegree[vertex];
+            default:
+                return Math.abs(inDegree[vertex] - outDegree[vertex]);
+        }
+    }
+
+    // Вспомогательный метод, раскладывающий все вершины по корзинам
+    // сортировкой подсчётом
+    private void build(BucketOrder bucketOrder, Kind kind) {
+        int maxDegree = 0;
+        for (int i = 0; i < vertexCount; ++i) {
+            bucketOrder.degree[i] = degreeOf(kind, i);
+            maxDegree = Math.max(maxDegree, bucketOrder.degree[i]);
+        }
+
+        // Сначала start[d] - число вершин со степенью больше d
+        int[] start = new int[maxDegree + 1];
+        for (int i = 0; i < vertexCount; ++i)
+            if (bucketOrder.degree[i] > 0)
+                ++start[bucketOrder.degree[i] - 1];
+        for (int d = maxDegree - 1; d >= 0; --d)
+            start[d] += start[d + 1];
+
+        int[] next = start.clone();
+        for (int i = 0; i < vertexCount; ++i) {
+            int place = next[bucketOrder.degree[i]]++;
+            bucketOrder.order[place] = i;
+            bucketOrder.position[i] = place;
+        }
+        bucketOrder.start = start;
+        bucketOrder.size = vertexCount;
+    }
+
+    // Вспомогательный метод, меняющий степень вершины на delta (1 или -1)
+    private void change(BucketOrder bucketOrder, int vertex, int delta) {
+        if (delta > 0)
+            bucketOrder.increment(vertex);
+        else
+            bucketOrder.decrement(vertex);
+    }
+
+    // Вспомогательный метод, учитывающий ребро: delta = 1 при добавлении
+    // и -1 при удалении
+    private void updateDegrees(int vertexFrom, int vertexTo, int delta) {
+        int from = vertexIndex.get(vertexFrom);
+        int to = vertexIndex.get(vertexTo);
+        int oldFromImbalance = Math.abs(inDegree[from] - outDegree[from]);
+        outDegree[from] += delta;
+        change(orders[Kind.OUT.ordinal()], from, delta);
+        change(orders[Kind.TOTAL.ordinal()], from, delta);
+        change(orders[Kind.IMBALANCE.ordinal()], from,
+                Math.abs(inDegree[from] - outDegree[from]) - oldFromImbalance);
+
+        // Петля считается только выходящим ребром
+        if (from != to) {
+            int oldToImbalance = Math.abs(inDegree[to] - outDegree[to]);
+            inDegree[to] += delta;
+            change(orders[Kind.IN.ordinal()], to, delta);
+            change(orders[Kind.TOTAL.ordinal()], to, delta);
+            change(orders[Kind.IMBALANCE.ordinal()], to,
+                    Math.abs(inDegree[to] - outDegree[to]) - oldToImbalance);
+        }
+    }
+
+    @Override
+    public void vertexAdded(int vertexId) {
+        if (vertexCount == vertexIds.length) {
+            int newLength = vertexIds.length * 2;
+            vertexIds = java.util.Arrays.copyOf(vertexIds, newLength);
+            inDegree = java.util.Arrays.copyOf(inDegree, newLength);
+            outDegree = java.util.Arrays.copyOf(outDegree, newLength);
+        }
+
+        vertexIds[vertexCount] = vertexId;
+        inDegree[vertexCount] = 0;
+        outDegree[vertexCount] = 0;
+        vertexIndex.put(vertexId, vertexCount);
+        for (BucketOrder bucketOrder : orders) {
+            bucketOrder.ensureCapacity(vertexCount + 1);
+            bucketOrder.add(vertexCount);
+        }
+        ++vertexCount;
+    }
+
+    @Override
+    public void edgeAdded(int vertexFrom, int vertexTo) {
+        updateDegrees(vertexFrom, vertexTo, 1);
+    }
+
+    @Override
+    public void edgeRemoved(int vertexFrom, int vertexTo) {
+        updateDegrees(vertexFrom, vertexTo, -1);
+    }
+
+    @Override
+    public void edgeRedirected(int vertexFrom, int vertexTo) {
+        updateDegrees(vertexFrom, vertexTo, -1);
+        updateDegrees(vertexTo, vertexFrom, 1);
+    }
+
+    // Рёбра вершины к этому моменту удалены, поэтому все её степени равны 0.
+    // На её место в массивах переносится последняя вершина
+    @Override
+    public void vertexRemoved(int vertexId) {
+        int vertex = vertexIndex.get(vertexId);
+        int last = vertexCount - 1;
+        for (BucketOrder bucketOrder : orders) {
+            bucketOrder.remove(vertex);
+            if (vertex != last)
+                bucketOrder.renumber(last, vertex);
+        }
+
+        vertexIndex.remove(vertexId);
+        if (vertex != last) {
+            vertexIds[vertex] = vertexIds[last];
+            inDegree[vertex] = inDegree[last];
+            outDegree[vertex] = outDegree[last];
+            vertexIndex.put(vertexIds[vertex], vertex);
+        }
+        --vertexCount;
+    }
+
+    // Метод, возвращающий степень вершины указанного вида (-1, если вершины нет)
+    public int degree(Kind kind, int vertexId) {
+        int vertex = vertexIndex.get(vertexId);
+        return vertex == -1 ? -1 : degreeOf(kind, vertex);
+    }
+
+    // Метод, возвращающий наибольшую степень указанного вида
+    public int maxDegree(Kind kind) {
+        return orders[kind.ordinal()].maxDegree();
+    }
+
+    // Метод, возвращающий ID не более чем k вершин с наибольшей степенью
+    // указанного вида, по убыванию степени (порядок вершин с одинаковой
+    // степенью не определён). Время O(k)
+    public int[] top(Kind kind, int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Negative count: " + k);
+
+        BucketOrder bucketOrder = orders[kind.ordinal()];
+        int[] result = new int[Math.min(k, bucketOrder.size)];
+        for (int i = 0; i < result.length; ++i)
+            result[i] = vertexIds[bucketOrder.order[i]];
+
+        return result;
+    }
+
+    // Метод, возвращающий гистограмму степеней указанного вида: элемент d -
+    // число вершин со степенью d. Время O(наибольшая степень)
+    public int[] histogram(Kind kind) {
+        BucketOrder bucketOrder = orders[kind.ordinal()];
+        int[] result = new int[bucketOrder.maxDegree() + 1];
+        for (int d = 0; d < result.length; ++d)
+            result[d] = bucketOrder.end(d) - bucketOrder.start[d];
+
+        return result;
+    }
+
+    // Вспомогательный метод, возвращающий места в order вершин со степенью
+    // из отрезка [minDegree, maxDegree]: {начало, конец}
+    private int[] range(BucketOrder bucketOrder, int minDegree, int maxDegree) {
+        if (minDegree > maxDegree)
+            throw new IllegalArgumentException("Invalid degree range: [" + minDegree + ", " + maxDegree + "]");
+
+        int highest = bucketOrder.maxDegree();
+        if (maxDegree < 0 || minDegree > highest)
+            return new int[]{0, 0};
+
+        int from = maxDegree >= highest ? 0 : bucketOrder.start[maxDegree];
+        int to = bucketOrder.end(Math.max(minDegree, 0));
+
+        return new int[]{from, to};
+    }
+
+    // Метод, возвращающий ID вершин со степенью указанного вида из отрезка
+    // [minDegree, maxDegree], по убыванию степени. Время пропорционально ответу
+    public int[] verticesInRange(Kind kind, int minDegree, int maxDegree) {
+        BucketOrder bucketOrder = orders[kind.ordinal()];
+        int[] range = range(bucketOrder, minDegree, maxDegree);
+        int[] result = new int[range[1] - range[0]];
+        for (int i = 0; i < result.length; ++i)
+            result[i] = vertexIds[bucketOrder.order[range[0] + i]];
+
+        return result;
+    }
+
+    // Метод, возвращающий число вершин со степенью указанного вида из
+    // отрезка [minDegree, maxDegree] за O(1)
+    public int countInRange(Kind kind, int minDegree, int maxDegree) {
+        int[] range = range(orders[kind.ordinal()], minDegree, maxDegree);
+        return range[1] - range[0];
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+}
@@ -0,0 +1,2012 @@
+package graph;
+
+public class DirectedGraph {
+
+    // Класс вершина (содержит ID вершины)
+    static class Vertex {
+        int vertexId;
+
+        public Vertex(int vertexId) {
+            this.vertexId = vertexId;
+        }
+
+        public boolean equals(Vertex vertex) {
+            return this.vertexId == vertex.vertexId;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d", vertexId);
+        }
+    }
+
+    // Класс Ребро (содержит 2 вершины, которые оно соединяет)
+    static class Edge {
+        Vertex vertexFrom;
+        Vertex vertexTo;
+
+        public Edge(int vertexFrom, int vertexTo) {
+            this.vertexFrom = new Vertex(vertexFrom);
+            this.vertexTo = new Vertex(vertexTo);
+        }
+
+        public Edge(Vertex vertexFrom, Vertex vertexTo) {
+            this.vertexFrom = vertexFrom;
+            this.vertexTo = vertexTo;
+        }
+
+        public Vertex[] listed() {
+            return new Vertex[]{vertexFrom, vertexTo};
+        }
+
+        public boolean equals(Edge edge) {
+            return this.vertexFrom.equals(edge.vertexFrom) && this.vertexTo.equals(edge.vertexTo);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("From %s -> To %s\n", vertexFrom, vertexTo);
+        }
+    }
+
+    // Граф состоит из множества вершин. Внутри графа вершина задаётся номером
+    // от 0 до usedNumbers - 1: все данные вершин хранятся в массивах по
+    // номерам, а списки смежности содержат номера соседей, поэтому обходы
+    // графа не обращаются к индексу вершин. Номер вершины не меняется, пока
+    // она есть в графе, а номер удалённой вершины попадает в freeNumbers
+    // и достаётся следующей добавленной вершине, поэтому массивы не растут
+    // при чередовании удалений и добавлений. vertexIds - ID вершины по номеру
+    private int[] vertexIds;
+    private int currentVertices = 0;
+    private int usedNumbers = 0;
+    private int[] freeNumbers = new int[0];
+    private int freeCount = 0;
+    // Порядок вершин (в нём выдаются результаты запросов): vertexOrder -
+    // номера вершин по порядку, orderPosition - место вершины в vertexOrder.
+    // При удалении вершины на её место встаёт последняя
+    private int[] vertexOrder;
+    private int[] orderPosition;
+    // -/- а также состоит из множества пар вершин - рёбер. Рёбра хранятся
+    // в двух параллельных массивах: ID начальной и ID конечной вершины.
+    // Объекты Vertex и Edge создаются только по запросу (методы getVertices, getEdges)
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private int currentEdges = 0;
+    // Удалённое ребро не вырезается из массивов сразу, а помечается в
+    // edgeRemoved ("надгробие"), поэтому удаление не сдвигает остальные
+    // рёбра. edgeSlots - число занятых мест в массивах рёбер вместе
+    // с удалёнными. Когда удалённых становится больше, чем оставшихся,
+    // массивы уплотняются (см. compactEdges)
+    private boolean[] edgeRemoved;
+    private int edgeSlots = 0;
+    // maxEdges - текущая вместимость массивов рёбер
+    // Заметим, что максимальная вместимость вершин в 2 раза больше, чем рёбер
+    private int maxEdges;
+    // Индекс рёбер: упакованная пара ID вершин (откуда, куда) -> номер
+    // ребра в массивах edgeFrom и edgeTo. Должен соответствовать этим массивам
+    private LongIntHashMap edgeIndex;
+    // Индекс вершин: ID вершины -> номер вершины.
+    // Вершина есть в графе тогда и только тогда, когда её ID есть в индексе
+    private IntIntHashMap vertexIndex;
+    // Число рёбер, выходящих из вершины и входящих в неё, по номерам вершин.
+    // Петля считается только выходящим ребром, как и при подсчёте степеней
+    // перебором рёбер
+    private int[] outDegree;
+    private int[] inDegree;
+    // Списки смежности: для каждой вершины - номера вершин, куда из неё
+    // ведут рёбра, в порядке рёбер в массивах рёбер, и номера самих рёбер
+    // (outEdges). Список занимает первые outLength элементов массивов.
+    // Удалённое ребро не вырезается из списка: на его месте остаётся -1,
+    // а место ребра в списке известно по edgeOutPosition, поэтому удаление
+    // не ищет ребро и не сдвигает остальных соседей. Когда удалённых мест
+    // в списке больше, чем соседей (outDegree), список уплотняется, поэтому
+    // на одно удаление приходится O(1), а обход списка просматривает
+    // не больше чем вдвое больше мест, чем соседей
+    private int[][] outNeighbours;
+    private int[][] outEdges;
+    private int[] outLength;
+    // Обратные списки смежности: номера вершин, из которых в вершину ведут
+    // рёбра, тоже в порядке рёбер и с удалёнными местами. Петля входит
+    // и в обратный список, поэтому число соседей хранится отдельно
+    // в inNeighbourCount
+    private int[][] inNeighbours;
+    private int[][] inEdges;
+    private int[] inLength;
+    private int[] inNeighbourCount;
+    // Место ребра в прямом и обратном списках смежности (по номеру ребра)
+    private int[] edgeOutPosition;
+    private int[] edgeInPosition;
+    // Номера вершин, в списках которых могут быть удалённые места. Перед
+    // уплотнением массивов рёбер эти списки уплотняются, т.к. номера рёбер
+    // в удалённых местах не обновляются. listDirty - номер уже в dirtyVertices
+    private boolean[] listDirty;
+    private int[] dirtyVertices;
+    private int dirtyCount = 0;
+
+    // Буферы обхода в ширину. Вершина уже добавлена на текущий уровень,
+    // если её отметка visitStamp равна visitEpoch, поэтому между уровнями
+    // массив отметок не нужно очищать
+    private int[] visitStamp = new int[0];
+    private int visitEpoch = 0;
+    private int[] frontier = new int[0];
+    private int[] nextFrontier = new int[0];
+    // true, пока получатель результата обхода читает frontier (см. потоковые
+    // варианты запросов): новый обход затёр бы буфер, поэтому он запрещён
+    private boolean frontierInUse = false;
+
+    // Счётчик изменений графа, увеличивается при каждом изменении
+    private int modCount = 0;
+    // Представление CSR, построенное методом freeze(). Сбрасывается при изменении графа
+    private CsrGraph frozen = null;
+    // Подписчики на изменения графа. Массив заменяется целиком при подписке
+    // и отписке, поэтому рассылка событий его не копирует, а без подписчиков
+    // стоит один пустой цикл
+    private GraphChangeListener[] listeners = new GraphChangeListener[0];
+    // Глубина вложенности массовых операций (события пачки рассылаются
+    // только для внешней)
+    private int batchDepth = 0;
+    // Индекс вершин по степеням, создаётся при первом вызове degreeIndex()
+    private DegreeIndex degreeIndex = null;
+    // Кеш результатов запросов на n ходов (см. enableStepCache) и ID вершин,
+    // пройденных последним обходом: от них зависит результат. expandedCount
+    // равен -1, если пройденных вершин больше, чем запоминает кеш
+    private StepQueryCache stepCache = null;
+    private boolean recordExpanded = false;
+    private int[] expanded = new int[0];
+    private int expandedCount = 0;
+    // Пока применяется пакет изменений (см. Batch), массивы рёбер не
+    // уплотняются: журнал отмены ссылается на места рёбер
+    private boolean compactionDeferred = false;
+
+    // если maxEdges на задано, то по умолчанию равно 20
+    public DirectedGraph() {
+        maxEdges = 20;
+        edgeFrom = new int[maxEdges];
+        edgeTo = new int[maxEdges];
+        edgeRemoved = new boolean[maxEdges];
+        edgeOutPosition = new int[maxEdges];
+        edgeInPosition = new int[maxEdges];
+        vertexIds = new int[maxEdges * 2];
+        outDegree = new int[maxEdges * 2];
+        inDegree = new int[maxEdges * 2];
+        outNeighbours = new int[maxEdges * 2][];
+        outEdges = new int[maxEdges * 2][];
+        outLength = new int[maxEdges * 2];
+        inNeighbours = new int[maxEdges * 2][];
+        inEdges = new int[maxEdges * 2][];
+        inLength = new int[maxEdges * 2];
+        inNeighbourCount = new int[maxEdges * 2];
+        listDirty = new boolean[maxEdges * 2];
+        dirtyVertices = new int[maxEdges * 2];
+        vertexOrder = new int[maxEdges * 2];
+        orderPosition = new int[maxEdges * 2];
+        edgeIndex = new LongIntHashMap(maxEdges);
+        vertexIndex = new IntIntHashMap(maxEdges * 2);
+    }
+
+    public DirectedGraph(int maxEdges) {
+        this.maxEdges = maxEdges;
+        this.edgeFrom = new int[maxEdges];
+        this.edgeTo = new int[maxEdges];
+        this.edgeRemoved = new boolean[maxEdges];
+        this.edgeOutPosition = new int[maxEdges];
+        this.edgeInPosition = new int[maxEdges];
+        this.vertexIds = new int[maxEdges * 2];
+        this.outDegree = new int[maxEdges * 2];
+        this.inDegree = new int[maxEdges * 2];
+        this.outNeighbours = new int[maxEdges * 2][];
+        this.outEdges = new int[maxEdges * 2][];
+        this.outLength = new int[maxEdges * 2];
+        this.inNeighbours = new int[maxEdges * 2][];
+        this.inEdges = new int[maxEdges * 2][];
+        this.inLength = new int[maxEdges * 2];
+        this.inNeighbourCount = new int[maxEdges * 2];
+        this.listDirty = new boolean[maxEdges * 2];
+        this.dirtyVertices = new int[maxEdges * 2];
+        this.vertexOrder = new int[maxEdges * 2];
+        this.orderPosition = new int[maxEdges * 2];
+        this.edgeIndex = new LongIntHashMap(maxEdges);
+        this.vertexIndex = new IntIntHashMap(maxEdges * 2);
+    }
+
+    // Вспомогательный метод, упаковывающий пару ID вершин в ключ индекса рёбер
+    private static long edgeKey(int vertexFrom, int vertexTo) {
+        return ((long) vertexFrom << 32) | (vertexTo & 0xFFFFFFFFL);
+    }
+
+    // Ключ индекса для ребра с указанным номером
+    private long edgeKey(int edgeNumber) {
+        return edgeKey(edgeFrom[edgeNumber], edgeTo[edgeNumber]);
+    }
+
+    // Вспомогательный метод, возвращающий новую вместимость массива: при
+    // нехватке места вместимость увеличивается вдвое (но не меньше чем до
+    // required), поэтому суммарное копирование при N добавлениях - O(N)
+    private static int grownCapacity(int capacity, int required) {
+        long grown = Math.max(2L * capacity, 20);
+        return (int) Math.min(Math.max(grown, required), Integer.MAX_VALUE - 8);
+    }
+
+    // Вспомогательный метод, гарантирующий место под указанное число номеров
+    // вершин в массиве вершин, массивах степеней, списков смежности и порядка
+    private void ensureVertexCapacity(int required) {
+        if (required <= vertexIds.length)
+            return;
+
+        int newLength = grownCapacity(vertexIds.length, required);
+        GraphMetrics.elementsCopied(14L * vertexIds.length);
+        vertexIds = java.util.Arrays.copyOf(vertexIds, newLength);
+        outDegree = java.util.Arrays.copyOf(outDegree, newLength);
+        inDegree = java.util.Arrays.copyOf(inDegree, newLength);
+        outNeighbours = java.util.Arrays.copyOf(outNeighbours, newLength);
+        outEdges = java.util.Arrays.copyOf(outEdges, newLength);
+        outLength = java.util.Arrays.copyOf(outLength, newLength);
+        inNeighbours = java.util.Arrays.copyOf(inNeighbours, newLength);
+        inEdges = java.util.Arrays.copyOf(inEdges, newLength);
+        inLength = java.util.Arrays.copyOf(inLength, newLength);
+        inNeighbourCount = java.util.Arrays.copyOf(inNeighbourCount, newLength);
+        listDirty = java.util.Arrays.copyOf(listDirty, newLength);
+        dirtyVertices = java.util.Arrays.copyOf(dirtyVertices, newLength);
+        vertexOrder = java.util.Arrays.copyOf(vertexOrder, newLength);
+        orderPosition = java.util.Arrays.copyOf(orderPosition, newLength);
+    }
+
+    // Вспомогательный метод, гарантирующий место под указанное число рёбер
+    private void ensureEdgeCapacity(int required) {
+        if (required <= maxEdges)
+            return;
+
+        GraphMetrics.elementsCopied(5L * maxEdges);
+        maxEdges = grownCapacity(maxEdges, required);
+        edgeFrom = java.util.Arrays.copyOf(edgeFrom, maxEdges);
+        edgeTo = java.util.Arrays.copyOf(edgeTo, maxEdges);
+        edgeRemoved = java.util.Arrays.copyOf(edgeRemoved, maxEdges);
+        edgeOutPosition = java.util.Arrays.copyOf(edgeOutPosition, maxEdges);
+        edgeInPosition = java.util.Arrays.copyOf(edgeInPosition, maxEdges);
+    }
+
+    // Вспомогательный метод, уплотняющий массивы рёбер, если удалённых рёбер
+    // больше, чем оставшихся. Порядок рёбер сохраняется, номера рёбер
+    // в индексе обновляются. Каждое уплотнение занимает O(edgeSlots), но
+    // перед ним было не меньше edgeSlots / 2 удалений, поэтому в среднем
+    // на одно удаление приходится O(1)
+    private void compactEdges() {
+        if (compactionDeferred || edgeSlots - currentEdges <= currentEdges || edgeSlots < 16)
+            return;
+
+        // Сначала из списков смежности убираются удалённые места: в них
+        // остаются старые номера рёбер
+        for (int i = 0; i < dirtyCount; ++i) {
+            int index = dirtyVertices[i];
+            listDirty[index] = false;
+            // У освободившихся номеров списков нет
+            if (outNeighbours[index] != null) {
+                if (outLength[index] != outDegree[index])
+                    this.compactList(false, index);
+                if (inLength[index] != inNeighbourCount[index])
+                    this.compactList(true, index);
+            }
+        }
+        dirtyCount = 0;
+
+        // Номера оставшихся рёбер меняются, поэтому они обновляются
+        // и в списках смежности
+        int count = 0;
+        for (int i = 0; i < edgeSlots; ++i)
+            if (!edgeRemoved[i]) {
+                edgeFrom[count] = edgeFrom[i];
+                edgeTo[count] = edgeTo[i];
+                edgeIndex.put(edgeKey(count), count);
+                outEdges[vertexIndex.get(edgeFrom[count])][edgeOutPosition[i]] = count;
+                inEdges[vertexIndex.get(edgeTo[count])][edgeInPosition[i]] = count;
+                edgeOutPosition[count] = edgeOutPosition[i];
+                edgeInPosition[count] = edgeInPosition[i];
+                ++count;
+            }
+
+        java.util.Arrays.fill(edgeRemoved, 0, edgeSlots, false);
+        GraphMetrics.elementsCopied(2L * count);
+        edgeSlots = count;
+    }
+
+    // Вспомогательный метод, вставляющий ребро с номером edge, ведущее
+    // к соседу neighbour, в прямой (reverse = false) или обратный список
+    // смежности вершины с номером index на позицию position. Места после
+    // неё сдвигаются, их позиции в edgeOutPosition / edgeInPosition обновляются
+    private void insertListEntry(boolean reverse, int index, int position, int neighbour, int edge) {
+        int[][] lists = reverse ? inNeighbours : outNeighbours;
+        int[][] edgeLists = reverse ? inEdges : outEdges;
+        int[] lengths = reverse ? inLength : outLength;
+        int[] positions = reverse ? edgeInPosition : edgeOutPosition;
+        int length = lengths[index];
+        int[] neighbours = lists[index];
+        int[] edges = edgeLists[index];
+        if (length == neighbours.length) {
+            int newLength = Math.max(4, length * 2);
+            neighbours = java.util.Arrays.copyOf(neighbours, newLength);
+            edges = java.util.Arrays.copyOf(edges, newLength);
+            lists[index] = neighbours;
+            edgeLists[index] = edges;
+            GraphMetrics.elementsCopied(2L * length);
+        }
+
+        GraphMetrics.elementsCopied(2L * (length - position));
+        for (int i = length; i > position; --i) {
+            neighbours[i] = neighbours[i - 1];
+            edges[i] = edges[i - 1];
+            if (neighbours[i] != -1)
+                positions[edges[i]] = i;
+        }
+        neighbours[position] = neighbour;
+        edges[position] = edge;
+        positions[edge] = position;
+        lengths[index] = length + 1;
+    }
+
+    // Вспомогательный метод, удаляющий из списка смежности вершины с номером
+    // index место position: место помечается удалённым, удалённые места
+    // в конце списка отбрасываются. Степени вершины к этому моменту уже
+    // уменьшены, по ним решается, пора ли уплотнить список
+    private void removeListEntry(boolean reverse, int index, int position) {
+        int[] neighbours = reverse ? inNeighbours[index] : outNeighbours[index];
+        int[] lengths = reverse ? inLength : outLength;
+        int live = reverse ? inNeighbourCount[index] : outDegree[index];
+        int length = lengths[index];
+        neighbours[position] = -1;
+        while (length > 0 && neighbours[length - 1] == -1)
+            --length;
+        lengths[index] = length;
+
+        if (length - live > live) {
+            this.compactList(reverse, index);
+        } else if (length != live && !listDirty[index]) {
+            listDirty[index] = true;
+            dirtyVertices[dirtyCount] = index;
+            ++dirtyCount;
+        }
+    }
+
+    // Вспомогательный метод, убирающий удалённые места из списка смежности
+    // вершины с номером index с сохранением порядка соседей
+    private void compactList(boolean reverse, int index) {
+        int[] neighbours = reverse ? inNeighbours[index] : outNeighbours[index];
+        int[] edges = reverse ? inEdges[index] : outEdges[index];
+        int[] lengths = reverse ? inLength : outLength;
+        int[] positions = reverse ? edgeInPosition : edgeOutPosition;
+        int count = 0;
+        for (int i = 0; i < lengths[index]; ++i)
+            if (neighbours[i] != -1) {
+                neighbours[count] = neighbours[i];
+                edges[count] = edges[i];
+                positions[edges[count]] = count;
+                ++count;
+            }
+
+        GraphMetrics.elementsCopied(2L * count);
+        lengths[index] = count;
+    }
+
+    // Вспомогательный метод, учитывающий ребро (заданное номерами вершин)
+    // в степенях его вершин и длинах списков смежности. delta = 1 при
+    // добавлении ребра и -1 при удалении. При удалении метод вызывается
+    // до изменения списков (см. removeListEntry)
+    private void updateDegrees(int fromIndex, int toIndex, int delta) {
+        outDegree[fromIndex] += delta;
+        inNeighbourCount[toIndex] += delta;
+        if (fromIndex != toIndex)
+            inDegree[toIndex] += delta;
+    }
+
+    // Вспомогательный метод, находящий двоичным поиском позицию в списке
+    // смежности вершины с номером index, на которую встаёт ребро с номером
+    // edgeNumber, чтобы список остался упорядоченным по номерам рёбер.
+    // Удалённые места хранят номера своих рёбер и тоже упорядочены.
+    // reverse = true для обратного списка
+    private int neighbourPosition(int index, boolean reverse, int edgeNumber) {
+        int[] edges = reverse ? inEdges[index] : outEdges[index];
+        int low = 0, high = reverse ? inLength[index] : outLength[index];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (edges[middle] < edgeNumber)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    // Вспомогательный метод, вызываемый при каждом изменении графа
+    private void modified() {
+        ++modCount;
+        frozen = null;
+    }
+
+    // Метод, подписывающий listener на изменения графа
+    public void addChangeListener(GraphChangeListener listener) {
+        if (listener == null)
+            throw new IllegalArgumentException("Listener is null");
+
+        GraphChangeListener[] newListeners = java.util.Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    // Метод, отписывающий listener. Возвращает true, если он был подписан
+    public boolean removeChangeListener(GraphChangeListener listener) {
+        for (int i = 0; i < listeners.length; ++i)
+            if (listeners[i] == listener) {
+                GraphChangeListener[] newListeners = new GraphChangeListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, newListeners.length - i);
+                listeners = newListeners;
+                return true;
+            }
+
+        return false;
+    }
+
+    // Метод, возвращающий индекс вершин по степеням (см. DegreeIndex).
+    // Индекс строится при первом вызове за O(V) и затем обновляется при
+    // каждом изменении графа
+    public DegreeIndex degreeIndex() {
+        if (degreeIndex == null) {
+            int[] orderedIds = new int[currentVertices];
+            int[] orderedOut = new int[currentVertices];
+            int[] orderedIn = new int[currentVertices];
+            for (int i = 0; i < currentVertices; ++i) {
+                orderedIds[i] = vertexIds[vertexOrder[i]];
+                orderedOut[i] = outDegree[vertexOrder[i]];
+                orderedIn[i] = inDegree[vertexOrder[i]];
+            }
+            degreeIndex = new DegreeIndex(orderedIds, orderedOut, orderedIn, currentVertices);
+            this.addChangeListener(degreeIndex);
+        }
+
+        return degreeIndex;
+    }
+
+    // Метод, включающий кеш результатов verticesWithinNSteps,
+    // verticesWithinTwoSteps и verticesWithinNStepsReverse не больше чем на
+    // maxEntries запросов (см. StepQueryCache). Возвращает кеш, по которому
+    // можно смотреть число попаданий, промахов и вытеснений
+    public StepQueryCache enableStepCache(int maxEntries) {
+        StepQueryCache cache = new StepQueryCache(maxEntries);
+        this.disableStepCache();
+        stepCache = cache;
+        expanded = new int[StepQueryCache.MAX_DEPENDENCIES];
+        this.addChangeListener(stepCache);
+
+        return stepCache;
+    }
+
+    public void disableStepCache() {
+        if (stepCache != null) {
+            this.removeChangeListener(stepCache);
+            stepCache = null;
+            expanded = new int[0];
+        }
+    }
+
+    // Метод, возвращающий кеш запросов или null, если он не включён
+    public StepQueryCache stepCache() {
+        return stepCache;
+    }
+
+    // Вспомогательные методы, отмечающие начало и конец массовой операции
+    private void beginBatch() {
+        if (batchDepth++ == 0)
+            for (GraphChangeListener listener : listeners)
+                listener.batchStarted();
+    }
+
+    private void endBatch() {
+        if (--batchDepth == 0)
+            for (GraphChangeListener listener : listeners)
+                listener.batchFinished();
+    }
+
+    // Вершины добавляются после добавления ребра
+    private void addVertices(int vertexFrom, int vertexTo) {
+        addVertex(vertexFrom);
+        addVertex(vertexTo);
+    }
+
+    private void addVertex(int vertexId) {
+        // Проверяем по индексу, что вершина ещё не добавлена
+        boolean alreadyExists = vertexIndex.containsKey(vertexId);
+
+        if (!alreadyExists) {
+            // Сначала используются номера удалённых вершин
+            int number;
+            if (freeCount > 0) {
+                number = freeNumbers[--freeCount];
+            } else {
+                ensureVertexCapacity(usedNumbers + 1);
+                number = usedNumbers;
+                ++usedNumbers;
+            }
+
+            vertexIds[number] = vertexId;
+            outDegree[number] = 0;
+            inDegree[number] = 0;
+            outNeighbours[number] = new int[0];
+            outEdges[number] = new int[0];
+            outLength[number] = 0;
+            inNeighbours[number] = new int[0];
+            inEdges[number] = new int[0];
+            inLength[number] = 0;
+            inNeighbourCount[number] = 0;
+            vertexOrder[currentVertices] = number;
+            orderPosition[number] = currentVertices;
+            vertexIndex.put(vertexId, number);
+            ++currentVertices;
+
+            for (GraphChangeListener listener : listeners)
+                listener.vertexAdded(vertexId);
+        }
+    }
+
+    public boolean addEdge(int vertexFrom, int vertexTo) {
+        long start = GraphMetrics.start();
+        boolean added = false;
+
+        // Проверяем по индексу, не добавлено ли ещё ребро
+        long key = edgeKey(vertexFrom, vertexTo);
+        boolean alreadyExists = edgeIndex.containsKey(key);
+
+        if (!alreadyExists) {
+            // Если вместимость предельна (равна maxEdges), то
+            // вместимость увеличивается вдвое
+            ensureEdgeCapacity(edgeSlots + 1);
+            this.appendEdge(vertexFrom, vertexTo, key);
+            this.modified();
+
+            added = true;
+        }
+
+        GraphMetrics.record(GraphMetrics.Operation.ADD_EDGE, start);
+        return added;
+    }
+
+    // Вспомогательный метод, добавляющий в конец новое ребро, которого ещё
+    // нет в графе. Место в массивах рёбер должно быть выделено заранее
+    private void appendEdge(int vertexFrom, int vertexTo, long key) {
+        int edgeNumber = edgeSlots;
+        edgeFrom[edgeNumber] = vertexFrom;
+        edgeTo[edgeNumber] = vertexTo;
+        edgeIndex.put(key, edgeNumber);
+        ++edgeSlots;
+        ++currentEdges;
+
+        // После добавления ребра добавляем вершины, если их
+        // ещё нет
+        this.addVertices(vertexFrom, vertexTo);
+        // Новое ребро последнее в массиве рёбер, поэтому и в списке смежности
+        int fromIndex = vertexIndex.get(vertexFrom);
+        int toIndex = vertexIndex.get(vertexTo);
+        this.insertListEntry(false, fromIndex, outLength[fromIndex], toIndex, edgeNumber);
+        this.insertListEntry(true, toIndex, inLength[toIndex], fromIndex, edgeNumber);
+        this.updateDegrees(fromIndex, toIndex, 1);
+
+        for (GraphChangeListener listener : listeners)
+            listener.edgeAdded(vertexFrom, vertexTo);
+    }
+
+    // Метод массового добавления рёбер: i-е ребро ведёт из vertexFrom[i]
+    // в vertexTo[i]. Место под рёбра выделяется один раз, повторы (в том
+    // числе с уже добавленными рёбрами) отбрасываются за один проход по
+    // индексу рёбер, порядок первых вхождений сохраняется. Петли при
+    // массовом добавлении отбрасываются. Возвращает число добавленных рёбер
+    public int addEdges(int[] vertexFrom, int[] vertexTo) {
+        if (vertexFrom.length != vertexTo.length)
+            throw new IllegalArgumentException("Arrays of edge ends differ in length: "
+                    + vertexFrom.length + " and " + vertexTo.length);
+
+        return addEdges(vertexFrom, vertexTo, vertexFrom.length);
+    }
+
+    // То же для первых count элементов массивов (удобно при чтении порциями)
+    public int addEdges(int[] vertexFrom, int[] vertexTo, int count) {
+        if (count < 0 || count > vertexFrom.length || count > vertexTo.length)
+            throw new IllegalArgumentException("Invalid edge count: " + count);
+
+        long start = GraphMetrics.start();
+        ensureEdgeCapacity(edgeSlots + count);
+        edgeIndex.ensureCapacity(currentEdges + count);
+        this.beginBatch();
+
+        int added = 0;
+        for (int i = 0; i < count; ++i) {
+            if (vertexFrom[i] == vertexTo[i])
+                continue;
+
+            long key = edgeKey(vertexFrom[i], vertexTo[i]);
+            if (!edgeIndex.containsKey(key)) {
+                this.appendEdge(vertexFrom[i], vertexTo[i], key);
+                ++added;
+            }
+        }
+
+        if (added > 0)
+            this.modified();
+        this.endBatch();
+
+        GraphMetrics.record(GraphMetrics.Operation.ADD_EDGES, start);
+        return added;
+    }
+
+    // Метод, добавляющий ребро, заданное объектом Edge
+    public boolean addEdge(Edge edge) {
+        return addEdge(edge.vertexFrom.vertexId, edge.vertexTo.vertexId);
+    }
+
+    // Метод, возвращающий рёбра графа в виде объектов Edge (в порядке добавления).
+    // Объекты создаются при каждом вызове, граф их не хранит
+    public Edge[] getEdges() {
+        Edge[] edges = new Edge[currentEdges];
+        int count = 0;
+        for (int i = 0; i < edgeSlots; ++i)
+            if (!edgeRemoved[i]) {
+                edges[count] = new Edge(edgeFrom[i], edgeTo[i]);
+                ++count;
+            }
+
+        return edges;
+    }
+
+    // Метод, возвращающий вершины графа в виде объектов Vertex
+    public Vertex[] getVertices() {
+        Vertex[] vertices = new Vertex[currentVertices];
+        for (int i = 0; i < currentVertices; ++i)
+            vertices[i] = new Vertex(vertexIds[vertexOrder[i]]);
+
+        return vertices;
+    }
+
+    // Метод вывода на экран всех ID вершин (по возрастанию ID). Порядок
+    // вершин в самом графе не меняется
+    public void printVertices() {
+        try {
+            writeVertices(System.out);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        System.out.flush();
+    }
+
+    // Метод, записывающий ID вершин по возрастанию в виде строк "номер. ID".
+    // Сортируется копия массива вершин за O(V log V)
+    public void writeVertices(Appendable out) throws java.io.IOException {
+        int[] sortedIds = new int[currentVertices];
+        for (int i = 0; i < currentVertices; ++i)
+            sortedIds[i] = vertexIds[vertexOrder[i]];
+        java.util.Arrays.sort(sortedIds);
+
+        TextOutput text = new TextOutput(out);
+        for (int i = 0; i < sortedIds.length; ++i)
+            text.append(i + 1).append(". ").append(sortedIds[i]).append('\n');
+        text.flush();
+    }
+
+    // Метод, записывающий рёбра в порядке добавления в виде строк
+    // "номер. From ID -> To ID" (формат toString). Текст выводится порциями,
+    // поэтому время записи линейно по числу рёбер
+    public void writeEdges(Appendable out) throws java.io.IOException {
+        TextOutput text = new TextOutput(out);
+        int number = 0;
+        for (int i = 0; i < edgeSlots; ++i)
+            if (!edgeRemoved[i]) {
+                ++number;
+                text.append(number).append(". From ").append(edgeFrom[i])
+                        .append(" -> To ").append(edgeTo[i]).append('\n');
+            }
+        text.flush();
+    }
+
+    // Метод, возвращающий список вершин с указанным числом рёбер и более
+    public int[] verticesWithMinDegree(int vertexDegree) {
+        long start = GraphMetrics.start();
+        // Не зная конкретное число, создадим массив максимально возможной длины
+        int[] verticesWithMinDegree = new int[currentVertices];
+        int verticesWithMinDegreeCount = 0;
+
+        // Число вхождений вершины в рёбра - сумма выходящих и входящих рёбер
+        // (петля учтена один раз, только как выходящее ребро)
+        for (int i = 0; i < currentVertices; ++i) {
+            int vertex = vertexOrder[i];
+            int count = outDegree[vertex] + inDegree[vertex];
+
+            // Добавляем в созданный ранее массив, если количество вхождений
+            // вершины в рёбра (число рёбер, соединяющихся в вершине) больше
+            // или равно указанного значения
+            if (count >= vertexDegree) {
+                verticesWithMinDegree[verticesWithMinDegreeCount] = vertexIds[vertex];
+                ++verticesWithMinDegreeCount;
+            }
+        }
+
+        // Узнав, сколько таких вершин есть, создаём новый массив нужной длины
+        // и копируем полученные значения в него
+        int[] resizedVerticesWithMinDegree = new int[verticesWithMinDegreeCount];
+        for (int i = 0; i < verticesWithMinDegreeCount; ++i)
+            resizedVerticesWithMinDegree[i] = verticesWithMinDegree[i];
+
+        GraphMetrics.record(GraphMetrics.Operation.VERTICES_WITH_MIN_DEGREE, start);
+        return resizedVerticesWithMinDegree;
+    }
+
+    // Метод, возвращающий список вершин таких, что число рёбер входящих
+    // в вершину больше числа рёбер выходящих из вершины
+    public int[] verticesWithInDominantDegree() {
+        long start = GraphMetrics.start();
+        // Аналогичное рассуждение
+        int[] verticesWithInDominantDegree = new int[currentVertices];
+        int verticesWithInDominantDegreeCount = 0;
+
+        for (int i = 0; i < currentVertices; ++i) {
+            int vertex = vertexOrder[i];
+            // countIn - число рёбер входящих
+            int countIn = inDegree[vertex];
+            // countOut - число рёбер выходящих
+            int countOut = outDegree[vertex];
+
+            if (countIn > countOut) {
+                verticesWithInDominantDegree[verticesWithInDominantDegreeCount] = vertexIds[vertex];
+                ++verticesWithInDominantDegreeCount;
+            }
+        }
+
+        // Меняем длину массива, копируя в новый
+        int[] resizedVerticesWithInDominant = new int[verticesWithInDominantDegreeCount];
+        for (int i = 0; i < verticesWithInDominantDegreeCount; ++i)
+            resizedVerticesWithInDominant[i] = verticesWithInDominantDegree[i];
+
+        GraphMetrics.record(GraphMetrics.Operation.VERTICES_WITH_IN_DOMINANT_DEGREE, start);
+        return resizedVerticesWithInDominant;
+    }
+
+    // Метод, меняющий направление ребра. Возвращает false, если такого ребра
+    // нет, если это петля или если обратное ребро уже есть: после
+    // перенаправления в графе оказались бы два одинаковых ребра
+    public boolean edgeRedirect(int vertexFrom, int vertexTo) {
+        long start = GraphMetrics.start();
+        boolean edgeRedirected = false;
+
+        // Если ребро соединяет одну и ту же вершину (петля), то поменять
+        // направление ребра нельзя
+        if (vertexFrom == vertexTo) {
+            GraphMetrics.record(GraphMetrics.Operation.EDGE_REDIRECT, start);
+            return edgeRedirected;
+        }
+
+        // Проверяем по индексу, входит ли ребро в множество рёбер графа
+        int edgeToRedirectIndex = edgeIndex.get(edgeKey(vertexFrom, vertexTo));
+
+        // Если обратное ребро уже есть, то после перенаправления рёбра
+        // повторились бы, поэтому перенаправить ребро нельзя
+        if (edgeIndex.containsKey(edgeKey(vertexTo, vertexFrom))) {
+            GraphMetrics.record(GraphMetrics.Operation.EDGE_REDIRECT, start);
+            return edgeRedirected;
+        }
+
+        // Если индекс нашёлся (не равен -1), то такое ребро есть.
+        // Меняем его направление
+        if (edgeToRedirectIndex != -1) {
+            int fromIndex = vertexIndex.get(vertexFrom);
+            int toIndex = vertexIndex.get(vertexTo);
+            this.updateDegrees(fromIndex, toIndex, -1);
+            this.removeListEntry(false, fromIndex, edgeOutPosition[edgeToRedirectIndex]);
+            this.removeListEntry(true, toIndex, edgeInPosition[edgeToRedirectIndex]);
+
+            // Ребро остаётся на своём месте в массиве рёбер, поэтому в списках
+            // смежности ищем место среди рёбер, добавленных раньше и позже него
+            this.insertListEntry(false, toIndex, neighbourPosition(toIndex, false, edgeToRedirectIndex),
+                    fromIndex, edgeToRedirectIndex);
+            this.insertListEntry(true, fromIndex, neighbourPosition(fromIndex, true, edgeToRedirectIndex),
+                    toIndex, edgeToRedirectIndex);
+            this.updateDegrees(toIndex, fromIndex, 1);
+            edgeIndex.remove(edgeKey(vertexFrom, vertexTo));
+            edgeFrom[edgeToRedirectIndex] = vertexTo;
+            edgeTo[edgeToRedirectIndex] = vertexFrom;
+            edgeIndex.put(edgeKey(vertexTo, vertexFrom), edgeToRedirectIndex);
+            this.modified();
+
+            for (GraphChangeListener listener : listeners)
+                listener.edgeRedirected(vertexFrom, vertexTo);
+
+            edgeRedirected = true;
+        }
+
+        GraphMetrics.record(GraphMetrics.Operation.EDGE_REDIRECT, start);
+        return edgeRedirected;
+    }
+
+    // Вспомогательный метод, удаляющий ребро с конкретным номером
+    private void deleteIndexedEdge(int indexToDelete) {
+        // Остальные рёбра не сдвигаются: место ребра помечается удалённым,
+        // порядок добавления оставшихся рёбер от этого не меняется
+        int fromIndex = vertexIndex.get(edgeFrom[indexToDelete]);
+        int toIndex = vertexIndex.get(edgeTo[indexToDelete]);
+        // Места ребра в списках смежности известны, поэтому удаление
+        // занимает O(1) (с учётом редких уплотнений списков)
+        this.updateDegrees(fromIndex, toIndex, -1);
+        this.removeListEntry(false, fromIndex, edgeOutPosition[indexToDelete]);
+        this.removeListEntry(true, toIndex, edgeInPosition[indexToDelete]);
+        this.markEdgeRemoved(indexToDelete);
+    }
+
+    // Вспомогательный метод, завершающий удаление ребра, которое уже убрано
+    // из списков смежности и учтено в степенях
+    private void markEdgeRemoved(int edgeNumber) {
+        edgeIndex.remove(edgeKey(edgeNumber));
+        edgeRemoved[edgeNumber] = true;
+
+        --currentEdges;
+        this.modified();
+
+        for (GraphChangeListener listener : listeners)
+            listener.edgeRemoved(edgeFrom[edgeNumber], edgeTo[edgeNumber]);
+    }
+
+    // Метод, удаляющий ребро по его ID вершин
+    public boolean deleteEdge(int vertexFrom, int vertexTo) {
+        long start = GraphMetrics.start();
+        // Аналогичное рассуждение
+        boolean deleted = false;
+
+        int indexToDelete = edgeIndex.get(edgeKey(vertexFrom, vertexTo));
+
+        // Если ребро нашлось, то удаляем ребро с конкретным номером
+        if (indexToDelete != -1) {
+            this.deleteIndexedEdge(indexToDelete);
+            this.compactEdges();
+            deleted = true;
+        }
+
+        GraphMetrics.record(GraphMetrics.Operation.DELETE_EDGE, start);
+        return deleted;
+    }
+
+    // Метод, создающий пустой пакет изменений графа
+    public Batch batch() {
+        return new Batch();
+    }
+
+    // Пакет изменений: операции addEdge, deleteEdge и edgeRedirect
+    // накапливаются и применяются вместе методом apply(). Результат каждой
+    // операции такой же, как при отдельном вызове в том же порядке.
+    // По сравнению с отдельными вызовами место под рёбра и вершины
+    // выделяется один раз на весь пакет, массивы рёбер уплотняются один раз
+    // в конце, а подписчики получают события одной пачкой после применения.
+    // Пакет применяется целиком или никак: если при применении возникло
+    // исключение, уже применённые операции отменяются в обратном порядке
+    // по журналу, и граф возвращается в исходное состояние
+    public class Batch {
+        private static final byte ADD = 0;
+        private static final byte DELETE = 1;
+        private static final byte REDIRECT = 2;
+
+        private byte[] kinds = new byte[16];
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int size = 0;
+
+        private Batch() {
+        }
+
+        private Batch add(byte kind, int vertexFrom, int vertexTo) {
+            if (size == kinds.length) {
+                int newLength = grownCapacity(kinds.length, size + 1);
+                kinds = java.util.Arrays.copyOf(kinds, newLength);
+                from = java.util.Arrays.copyOf(from, newLength);
+                to = java.util.Arrays.copyOf(to, newLength);
+            }
+
+            kinds[size] = kind;
+            from[size] = vertexFrom;
+            to[size] = vertexTo;
+            ++size;
+            return this;
+        }
+
+        public Batch addEdge(int vertexFrom, int vertexTo) {
+            return add(ADD, vertexFrom, vertexTo);
+        }
+
+        public Batch deleteEdge(int vertexFrom, int vertexTo) {
+            return add(DELETE, vertexFrom, vertexTo);
+        }
+
+        public Batch edgeRedirect(int vertexFrom, int vertexTo) {
+            return add(REDIRECT, vertexFrom, vertexTo);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Метод, применяющий пакет к графу. Возвращает результаты операций
+        // по порядку, после применения пакет становится пустым
+        public boolean[] apply() {
+            long start = GraphMetrics.start();
+            boolean[] results = new boolean[size];
+
+            // Место выделяется заранее с запасом: каждое добавление может
+            // занять место ребра и создать не больше двух вершин
+            int adds = 0;
+            int newEndpoints = 0;
+            for (int i = 0; i < size; ++i)
+                if (kinds[i] == ADD) {
+                    ++adds;
+                    if (!vertexIndex.containsKey(from[i]))
+                        ++newEndpoints;
+                    if (!vertexIndex.containsKey(to[i]))
+                        ++newEndpoints;
+                }
+            ensureEdgeCapacity(edgeSlots + adds);
+            edgeIndex.ensureCapacity(currentEdges + adds);
+            ensureVertexCapacity(usedNumbers + Math.max(newEndpoints - freeCount, 0));
+            vertexIndex.ensureCapacity(currentVertices + newEndpoints);
+
+            // Журнал применённых операций: номер операции и место ребра
+            // (для добавления ещё признаки новых вершин). По нему операции
+            // отменяются, а после применения рассылаются события
+            int[] applied = new int[size];
+            int[] slots = new int[size];
+            byte[] createdVertices = new byte[size];
+            int appliedCount = 0;
+
+            // Подписчики отключаются на время применения
+            GraphChangeListener[] savedListeners = listeners;
+            listeners = new GraphChangeListener[0];
+            compactionDeferred = true;
+            try {
+                for (int i = 0; i < size; ++i) {
+                    long key = edgeKey(from[i], to[i]);
+                    switch (kinds[i]) {
+                        case ADD:
+                            if (!edgeIndex.containsKey(key)) {
+                                byte created = 0;
+                                if (!vertexIndex.containsKey(from[i]))
+                                    created |= 1;
+                                if (from[i] != to[i] && !vertexIndex.containsKey(to[i]))
+                                    created |= 2;
+                                appendEdge(from[i], to[i], key);
+                                modified();
+                                createdVertices[appliedCount] = created;
+                                slots[appliedCount] = edgeSlots - 1;
+                                results[i] = true;
+                            }
+                            break;
+                        case DELETE:
+                            int edgeNumber = edgeIndex.get(key);
+                            if (edgeNumber != -1) {
+                                deleteIndexedEdge(edgeNumber);
+                                slots[appliedCount] = edgeNumber;
+                                results[i] = true;
+                            }
+                            break;
+                        default:
+                            results[i] = DirectedGraph.this.edgeRedirect(from[i], to[i]);
+                            break;
+                    }
+
+                    if (results[i]) {
+                        applied[appliedCount] = i;
+                        ++appliedCount;
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                // Отменяем применённые операции в обратном порядке. События
+                // о них не рассылались, поэтому и об отмене не рассылаются
+                for (int k = appliedCount - 1; k >= 0; --k)
+                    undo(applied[k], slots[k], createdVertices[k]);
+                throw e;
+            } finally {
+                listeners = savedListeners;
+                compactionDeferred = false;
+            }
+
+            compactEdges();
+            beginBatch();
+            for (int k = 0; k < appliedCount; ++k)
+                publish(applied[k], createdVertices[k]);
+            endBatch();
+
+            size = 0;
+            GraphMetrics.record(GraphMetrics.Operation.BATCH, start);
+            return results;
+        }
+
+        // Вспомогательный метод, отменяющий применённую операцию
+        private void undo(int operation, int slot, byte createdVertices) {
+            switch (kinds[operation]) {
+                case ADD:
+                    // Добавленное ребро последнее в массивах рёбер, поэтому
+                    // его место освобождается целиком
+                    deleteIndexedEdge(slot);
+                    edgeRemoved[slot] = false;
+                    --edgeSlots;
+                    if ((createdVertices & 2) != 0)
+                        deleteVertex(to[operation]);
+                    if ((createdVertices & 1) != 0)
+                        deleteVertex(from[operation]);
+                    break;
+                case DELETE:
+                    restoreEdge(slot);
+                    break;
+                default:
+                    DirectedGraph.this.edgeRedirect(to[operation], from[operation]);
+                    break;
+            }
+        }
+
+        // Вспомогательный метод, рассылающий события применённой операции
+        private void publish(int operation, byte createdVertices) {
+            int vertexFrom = from[operation], vertexTo = to[operation];
+            for (GraphChangeListener listener : listeners)
+                switch (kinds[operation]) {
+                    case ADD:
+                        if ((createdVertices & 1) != 0)
+                            listener.vertexAdded(vertexFrom);
+                        if ((createdVertices & 2) != 0)
+                            listener.vertexAdded(vertexTo);
+                        listener.edgeAdded(vertexFrom, vertexTo);
+                        break;
+                    case DELETE:
+                        listener.edgeRemoved(vertexFrom, vertexTo);
+                        break;
+                    default:
+                        listener.edgeRedirected(vertexFrom, vertexTo);
+                        break;
+                }
+        }
+    }
+
+    // Вспомогательный метод, возвращающий на место удалённое ребро с
+    // указанным номером (место ещё не занято уплотнением)
+    private void restoreEdge(int edgeNumber) {
+        edgeRemoved[edgeNumber] = false;
+        edgeIndex.put(edgeKey(edgeNumber), edgeNumber);
+        ++currentEdges;
+
+        int fromIndex = vertexIndex.get(edgeFrom[edgeNumber]);
+        int toIndex = vertexIndex.get(edgeTo[edgeNumber]);
+        this.insertListEntry(false, fromIndex, neighbourPosition(fromIndex, false, edgeNumber), toIndex, edgeNumber);
+        this.insertListEntry(true, toIndex, neighbourPosition(toIndex, true, edgeNumber), fromIndex, edgeNumber);
+        this.updateDegrees(fromIndex, toIndex, 1);
+        this.modified();
+    }
+
+    // Метод, удаляющий вершину конкретного ID
+    public boolean deleteVertex(int vertexId) {
+        long start = GraphMetrics.start();
+        // Аналогичное рассуждение
+        boolean deleted = false;
+
+        int indexToDelete = vertexIndex.get(vertexId);
+
+        if (indexToDelete != -1) {
+            // Вместе с удалённой вершиной нужно удалить рёбра, связывающие её с
+            // другими. Эти рёбра находятся по прямому и обратному спискам
+            // смежности вершины, остальные рёбра не просматриваются. Списки
+            // самой вершины отбрасываются целиком, а у соседей ребро убирается
+            // по известному месту, поэтому удаление занимает O(степени)
+            int[] successors = outNeighbours[indexToDelete];
+            int[] successorEdges = outEdges[indexToDelete];
+            int[] predecessors = inNeighbours[indexToDelete];
+            int[] predecessorEdges = inEdges[indexToDelete];
+            GraphMetrics.edgesScanned(outLength[indexToDelete] + inLength[indexToDelete]);
+            this.beginBatch();
+            for (int i = 0; i < outLength[indexToDelete]; ++i) {
+                int successor = successors[i];
+                if (successor == -1)
+                    continue;
+
+                this.updateDegrees(indexToDelete, successor, -1);
+                // Петля есть и в обратном списке самой вершины
+                if (successor != indexToDelete)
+                    this.removeListEntry(true, successor, edgeInPosition[successorEdges[i]]);
+                this.markEdgeRemoved(successorEdges[i]);
+            }
+            for (int i = 0; i < inLength[indexToDelete]; ++i) {
+                int predecessor = predecessors[i];
+                // Петля уже удалена вместе с исходящими рёбрами
+                if (predecessor == -1 || predecessor == indexToDelete)
+                    continue;
+
+                this.updateDegrees(predecessor, indexToDelete, -1);
+                this.removeListEntry(false, predecessor, edgeOutPosition[predecessorEdges[i]]);
+                this.markEdgeRemoved(predecessorEdges[i]);
+            }
+            outNeighbours[indexToDelete] = null;
+            outEdges[indexToDelete] = null;
+            outLength[indexToDelete] = 0;
+            inNeighbours[indexToDelete] = null;
+            inEdges[indexToDelete] = null;
+            inLength[indexToDelete] = 0;
+            this.compactEdges();
+
+            // Т.к. вершины по порядку добавления хранить необязательно,
+            // то просто вместо удалённой вершины в порядке помещаем последнюю.
+            // Номера остальных вершин не меняются, номер удалённой освобождается
+            vertexIndex.remove(vertexId);
+            int position = orderPosition[indexToDelete];
+            int last = vertexOrder[currentVertices - 1];
+            vertexOrder[position] = last;
+            orderPosition[last] = position;
+            --currentVertices;
+            if (freeCount == freeNumbers.length)
+                freeNumbers = java.util.Arrays.copyOf(freeNumbers, grownCapacity(freeNumbers.length, freeCount + 1));
+            freeNumbers[freeCount] = indexToDelete;
+            ++freeCount;
+            this.modified();
+
+            for (GraphChangeListener listener : listeners)
+                listener.vertexRemoved(vertexId);
+            this.endBatch();
+
+            deleted = true;
+        }
+
+        GraphMetrics.record(GraphMetrics.Operation.DELETE_VERTEX, start);
+        return deleted;
+    }
+
+    // Метод, удаляющий вершины, у которых разница (по модулю) между количеством
+    // входящих и исходящих рёбер минимальна среди всех вершин
+    public boolean deleteVerticesWithMinDegreeDifference() {
+        long start = GraphMetrics.start();
+        boolean deleted = false;
+
+        if (currentVertices > 0) {
+            // Аналогичное рассуждение
+            // Создаём массив, который будет соотносить вершину и
+            // разность (по модулю) между входящими и исходящими рёбрами
+            int[] verticesDegreeDifference = new int[currentVertices];
+            // Создаём копию массива вершин, т.к. в будущем их придётся удалять
+            int[] verticesCopy = new int[currentVertices];
+            for (int i = 0; i < currentVertices; ++i)
+                verticesCopy[i] = vertexIds[vertexOrder[i]];
+            // Параллельно с этими значениями, будем вычислять минимальную разность
+            int minDifference = -1;
+            for (int i = 0; i < currentVertices; ++i) {
+                int countIn = inDegree[vertexOrder[i]], countOut = outDegree[vertexOrder[i]];
+
+                verticesDegreeDifference[i] = Math.abs(countIn - countOut);
+
+                if (Math.abs(countIn - countOut) < minDifference || minDifference == -1) {
+                    minDifference = Math.abs(countIn - countOut);
+                }
+            }
+
+            // Число вершин уменьшается при удалении, поэтому проходимся по копии
+            this.beginBatch();
+            for (int indexToDelete = 0; indexToDelete < verticesCopy.length; ++indexToDelete)
+                if (verticesDegreeDifference[indexToDelete] == minDifference)
+                    this.deleteVertex(verticesCopy[indexToDelete]);
+            this.endBatch();
+
+            deleted = true;
+        }
+
+        GraphMetrics.record(GraphMetrics.Operation.DELETE_VERTICES_WITH_MIN_DEGREE_DIFFERENCE, start);
+        return deleted;
+    }
+
+    // Результат послойного удаления вершин (см. minDegreeDifferenceLayers):
+    // ID вершин в порядке удаления и номер слоя каждой (слои нумеруются с 0).
+    // Вершины слоя number занимают места с layerStart[number] по
+    // layerStart[number + 1] - 1, а слой вершины хранится в индексе по ID,
+    // поэтому оба запроса не перебирают остальные слои
+    static class Layers {
+        final int[] vertexIds;
+        final int[] layers;
+        final int layerCount;
+        private final int[] layerStart;
+        private final IntIntHashMap layerIndex;
+
+        Layers(int[] vertexIds, int[] layers, int layerCount) {
+            this.vertexIds = vertexIds;
+            this.layers = layers;
+            this.layerCount = layerCount;
+            this.layerStart = new int[layerCount + 1];
+            this.layerIndex = new IntIntHashMap(vertexIds.length);
+            for (int i = 0; i < vertexIds.length; ++i) {
+                ++layerStart[layers[i] + 1];
+                layerIndex.put(vertexIds[i], layers[i]);
+            }
+            for (int number = 0; number < layerCount; ++number)
+                layerStart[number + 1] += layerStart[number];
+        }
+
+        // Метод, возвращающий ID вершин слоя с указанным номером
+        public int[] layer(int number) {
+            if (number < 0 || number >= layerCount)
+                return new int[0];
+
+            return java.util.Arrays.copyOfRange(vertexIds, layerStart[number], layerStart[number + 1]);
+        }
+
+        // Метод, возвращающий номер слоя вершины с указанным ID
+        // (-1, если такой вершины не было в графе)
+        public int layerOf(int vertexId) {
+            return layerIndex.get(vertexId);
+        }
+    }
+
+    // Метод, разбивающий вершины на слои так, как их удаляли бы повторные
+    // вызовы deleteVerticesWithMinDegreeDifference(): слой 0 - вершины
+    // с минимальной разностью входящих и исходящих рёбер, слой 1 - такие же
+    // вершины после удаления слоя 0 и т.д. Сам граф не изменяется.
+    // Разности хранятся в очередях-корзинах (двусвязные списки вершин с равной
+    // разностью). Удаление ребра меняет разность соседа на 1 и переносит его
+    // в соседнюю корзину за O(1), указатель на наименьшую непустую корзину
+    // сдвигается вверх не больше, чем сдвигался вниз, плюс наибольшая
+    // разность. Поэтому всё разбиение занимает O(V + E)
+    public Layers minDegreeDifferenceLayers() {
+        long start = GraphMetrics.start();
+        // Массивы - по номерам вершин
+        int count = currentVertices;
+        int[] countIn = java.util.Arrays.copyOf(inDegree, usedNumbers);
+        int[] countOut = java.util.Arrays.copyOf(outDegree, usedNumbers);
+        // Разность может вырасти при удалении соседей, но не больше
+        // наибольшей из степеней вершины
+        int maxDifference = 0;
+        for (int i = 0; i < count; ++i)
+            maxDifference = Math.max(maxDifference, Math.max(countIn[vertexOrder[i]], countOut[vertexOrder[i]]));
+
+        // Корзины: head[d] - первая вершина с разностью d, next/previous -
+        // соседи по корзине (-1, если их нет)
+        int[] difference = new int[usedNumbers];
+        int[] head = new int[maxDifference + 1];
+        int[] next = new int[usedNumbers];
+        int[] previous = new int[usedNumbers];
+        java.util.Arrays.fill(head, -1);
+        for (int i = 0; i < count; ++i) {
+            int vertex = vertexOrder[i];
+            difference[vertex] = Math.abs(countIn[vertex] - countOut[vertex]);
+            linkBucket(head, next, previous, difference[vertex], vertex);
+        }
+
+        boolean[] removed = new boolean[usedNumbers];
+        int[] removedVertices = new int[count];
+        int[] resultIds = new int[count];
+        int[] resultLayers = new int[count];
+        int removedCount = 0;
+        int layer = 0;
+        int minDifference = 0;
+        long scanned = 0;
+        while (removedCount < count) {
+            while (head[minDifference] == -1)
+                ++minDifference;
+
+            // Слой - вся корзина с наименьшей разностью, определённая до
+            // удаления вершин слоя
+            int layerStart = removedCount;
+            for (int i = head[minDifference]; i != -1; i = next[i]) {
+                removed[i] = true;
+                removedVertices[removedCount] = i;
+                resultIds[removedCount] = vertexIds[i];
+                resultLayers[removedCount] = layer;
+                ++removedCount;
+            }
+            head[minDifference] = -1;
+
+            // Удаляем рёбра слоя: соседям, которые остаются, меняем степени
+            for (int k = layerStart; k < removedCount; ++k) {
+                int index = removedVertices[k];
+                int[] successors = outNeighbours[index];
+                int[] predecessors = inNeighbours[index];
+                scanned += outLength[index] + inLength[index];
+                for (int j = 0; j < outLength[index]; ++j) {
+                    int neighbour = successors[j];
+                    if (neighbour != -1 && !removed[neighbour]) {
+                        --countIn[neighbour];
+                        minDifference = Math.min(minDifference,
+                                moveBucket(head, next, previous, difference, countIn, countOut, neighbour));
+                    }
+                }
+                for (int j = 0; j < inLength[index]; ++j) {
+                    int neighbour = predecessors[j];
+                    if (neighbour != -1 && !removed[neighbour]) {
+                        --countOut[neighbour];
+                        minDifference = Math.min(minDifference,
+                                moveBucket(head, next, previous, difference, countIn, countOut, neighbour));
+                    }
+                }
+            }
+            ++layer;
+        }
+
+        GraphMetrics.edgesScanned(scanned);
+        GraphMetrics.record(GraphMetrics.Operation.MIN_DEGREE_DIFFERENCE_LAYERS, start);
+        return new Layers(resultIds, resultLayers, layer);
+    }
+
+    // Вспомогательный метод, добавляющий вершину в начало корзины d
+    private static void linkBucket(int[] head, int[] next, int[] previous, int d, int vertex) {
+        previous[vertex] = -1;
+        next[vertex] = head[d];
+        if (head[d] != -1)
+            previous[head[d]] = vertex;
+        head[d] = vertex;
+    }
+
+    // Вспомогательный метод, переносящий вершину в корзину её новой
+    // разности степеней. Возвращает новую разность
+    private static int moveBucket(int[] head, int[] next, int[] previous, int[] difference,
+                                  int[] countIn, int[] countOut, int vertex) {
+        if (previous[vertex] != -1)
+            next[previous[vertex]] = next[vertex];
+        else
+            head[difference[vertex]] = next[vertex];
+        if (next[vertex] != -1)
+            previous[next[vertex]] = previous[vertex];
+
+        difference[vertex] = Math.abs(countIn[vertex] - countOut[vertex]);
+        linkBucket(head, next, previous, difference[vertex], vertex);
+
+        return difference[vertex];
+    }
+
+    // Метод, удаляющий первые layerCount слоёв вершин с минимальной разностью
+    // входящих и исходящих рёбер - те же вершины, что удалили бы layerCount
+    // вызовов deleteVerticesWithMinDegreeDifference(), но за O(V + E) вместо
+    // O(V * E) на каждый слой. Вершины удаляются в порядке слоёв, а не
+    // в порядке массива вершин, поэтому порядок оставшихся вершин может
+    // отличаться от повторных вызовов. Возвращает число удалённых вершин
+    public int peelMinDegreeDifference(int layerCount) {
+        if (layerCount < 0)
+            throw new IllegalArgumentException("Negative layer count: " + layerCount);
+
+        Layers layers = this.minDegreeDifferenceLayers();
+        int deleted = layerCount < layers.layerCount ? layers.layerStart[layerCount] : layers.vertexIds.length;
+        this.beginBatch();
+        for (int i = 0; i < deleted; ++i)
+            this.deleteVertex(layers.vertexIds[i]);
+        this.endBatch();
+
+        return deleted;
+    }
+
+    // Вспомогательный метод, возвращающий список с уникальными значениями из указанного
+    private int[] uniqueElementsList(int[] array) {
+        // Аналогичное рассуждение
+        int[] newArray = new int[array.length];
+        int count = 0;
+
+        for (int i = 0; i < array.length; ++i) {
+            // Проверяем, является ли число уникальным
+            boolean isUnique = true;
+            for (int j = i - 1; j >= 0 && isUnique; --j)
+                if (array[j] == array[i])
+                    isUnique = false;
+
+            if (isUnique) {
+                newArray[count] = array[i];
+                ++count;
+            }
+        }
+
+        int[] newResizedArray = new int[count];
+        for (int i = 0; i < count; ++i)
+            newResizedArray[i] = newArray[i];
+
+        return newResizedArray;
+    }
+
+    // Вспомогательный метод - обход в ширину по уровням. Находит вершины,
+    // в которые из указанной ведёт путь ровно из n рёбер (при reverse = true -
+    // вершины, из которых в указанную ведёт такой путь). Номера найденных
+    // вершин оказываются в буфере frontier, возвращается их количество.
+    // Списки смежности содержат номера вершин, поэтому обход идёт только
+    // по массивам, без обращений к индексу вершин
+    private int walkNSteps(int vertexId, int n, boolean reverse) {
+        if (frontierInUse)
+            throw new IllegalStateException("N-step query started while its result is being consumed");
+
+        long startTime = GraphMetrics.start();
+        int[][] lists = reverse ? inNeighbours : outNeighbours;
+        int[] listSizes = reverse ? inLength : outLength;
+
+        int start = vertexIndex.get(vertexId);
+        if (start == -1) {
+            GraphMetrics.record(GraphMetrics.Operation.VERTICES_WITHIN_N_STEPS, startTime);
+            return 0;
+        }
+
+        if (visitStamp.length < usedNumbers) {
+            visitStamp = new int[vertexIds.length];
+            frontier = new int[vertexIds.length];
+            nextFrontier = new int[vertexIds.length];
+            visitEpoch = 0;
+        }
+
+        frontier[0] = start;
+        int count = 1;
+        long scanned = 0;
+        for (int step = 0; step < n && count > 0; ++step) {
+            // Новая отметка для каждого уровня: вершина может встретиться
+            // на нескольких уровнях, но на одном - только один раз
+            if (++visitEpoch == Integer.MAX_VALUE) {
+                java.util.Arrays.fill(visitStamp, 0);
+                visitEpoch = 1;
+            }
+
+            if (recordExpanded)
+                this.recordFrontier(count);
+
+            int nextCount = 0;
+            for (int i = 0; i < count; ++i) {
+                int vertex = frontier[i];
+                int[] neighbours = lists[vertex];
+                scanned += listSizes[vertex];
+                for (int j = 0; j < listSizes[vertex]; ++j) {
+                    int neighbour = neighbours[j];
+                    // Удалённые места списка (-1) пропускаются
+                    if (neighbour != -1 && visitStamp[neighbour] != visitEpoch) {
+                        visitStamp[neighbour] = visitEpoch;
+                        nextFrontier[nextCount] = neighbour;
+                        ++nextCount;
+                    }
+                }
+            }
+
+            // Следующий уровень становится текущим, буферы меняются местами
+            int[] buff = frontier;
+            frontier = nextFrontier;
+            nextFrontier = buff;
+            count = nextCount;
+        }
+
+        GraphMetrics.edgesScanned(scanned);
+        GraphMetrics.record(GraphMetrics.Operation.VERTICES_WITHIN_N_STEPS, startTime);
+        return count;
+    }
+
+    // Вспомогательный метод, запоминающий ID вершин текущего уровня обхода
+    private void recordFrontier(int count) {
+        if (expandedCount == -1)
+            return;
+        if (expandedCount + count > expanded.length) {
+            expandedCount = -1;
+            return;
+        }
+
+        for (int i = 0; i < count; ++i)
+            expanded[expandedCount + i] = vertexIds[frontier[i]];
+        expandedCount += count;
+    }
+
+    // Вспомогательный метод, выполняющий запрос на n ходов через кеш, если
+    // он включён
+    private int[] stepQuery(int vertexId, int n, boolean reverse) {
+        if (stepCache == null || !StepQueryCache.cacheable(n))
+            return frontierVertices(walkNSteps(vertexId, n, reverse));
+
+        int[] result = stepCache.get(vertexId, n, reverse);
+        if (result == null) {
+            // Начальная вершина - всегда среди зависимостей, даже если её
+            // нет в графе: при её появлении запись должна устареть
+            expanded[0] = vertexId;
+            expandedCount = 1;
+            recordExpanded = true;
+            result = frontierVertices(walkNSteps(vertexId, n, reverse));
+            recordExpanded = false;
+            stepCache.put(vertexId, n, reverse, result,
+                    expandedCount == -1 ? null : java.util.Arrays.copyOf(expanded, expandedCount));
+        }
+
+        return result;
+    }
+
+    // Вспомогательный метод, возвращающий ID вершин, найденных обходом
+    private int[] frontierVertices(int count) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; ++i)
+            result[i] = vertexIds[frontier[i]];
+
+        return result;
+    }
+
+    // Метод, возвращающий список ID вершин, достижимых за два хода от указанной
+    public int[] verticesWithinTwoSteps(int vertexId) {
+        return stepQuery(vertexId, 2, false);
+    }
+
+    // Метод, возвращающий список вершин, куда ведёт указанная вершина
+    public int[] successors(int vertexId) {
+        int index = vertexIndex.get(vertexId);
+        if (index == -1)
+            return new int[0];
+
+        return neighbourIds(outNeighbours[index], outLength[index], outDegree[index]);
+    }
+
+    // Метод, возвращающий список вершин, из которых ведут рёбра в указанную
+    public int[] predecessors(int vertexId) {
+        int index = vertexIndex.get(vertexId);
+        if (index == -1)
+            return new int[0];
+
+        return neighbourIds(inNeighbours[index], inLength[index], inNeighbourCount[index]);
+    }
+
+    // Вспомогательный метод, возвращающий ID вершин из списка смежности
+    // длины length, в котором count соседей
+    private int[] neighbourIds(int[] neighbours, int length, int count) {
+        int[] result = new int[count];
+        int resultCount = 0;
+        for (int i = 0; i < length; ++i)
+            if (neighbours[i] != -1)
+                result[resultCount++] = vertexIds[neighbours[i]];
+
+        return result;
+    }
+
+    // Метод, возвращающий список вершин, достижимых за n ходов из указанной вершины
+    public int[] verticesWithinNSteps(int vertexId, int n) {
+        // Ограничение на n
+        if (n <= 0)
+            return new int[0];
+
+        return stepQuery(vertexId, n, false);
+    }
+
+    // Метод, возвращающий список вершин, из которых указанная вершина
+    // достижима за n ходов (обход по рёбрам в обратном направлении)
+    public int[] verticesWithinNStepsReverse(int vertexId, int n) {
+        if (n <= 0)
+            return new int[0];
+
+        return stepQuery(vertexId, n, true);
+    }
+
+    // Потоковые варианты запросов. Вместо массива результата (и временного
+    // массива на все вершины) вершины передаются получателю IntConsumer или
+    // выдаются лениво через IntStream / PrimitiveIterator.OfInt, поэтому
+    // можно остановиться раньше или обработать результат параллельно.
+    // Пока поток или итератор не исчерпан, граф изменять нельзя: при
+    // изменении выбрасывается ConcurrentModificationException. То же
+    // и для получателя: если он изменил граф, после его вызова выбрасывается
+    // ConcurrentModificationException. Результат обхода за n ходов
+    // передаётся получателю прямо из общего буфера графа, поэтому получатель
+    // не может начать новый запрос вершин за n ходов (в том числе
+    // вернуть массив): такой вызов выбрасывает IllegalStateException
+
+    // Метод, передающий получателю вершины с указанным числом рёбер и более
+    public void verticesWithMinDegree(int vertexDegree, java.util.function.IntConsumer sink) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < currentVertices; ++i) {
+            int vertex = vertexOrder[i];
+            if (outDegree[vertex] + inDegree[vertex] >= vertexDegree) {
+                sink.accept(vertexIds[vertex]);
+                checkModCount(expectedModCount);
+            }
+        }
+    }
+
+    // Метод, передающий получателю вершины, у которых входящих рёбер больше, чем выходящих
+    public void verticesWithInDominantDegree(java.util.function.IntConsumer sink) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < currentVertices; ++i) {
+            int vertex = vertexOrder[i];
+            if (inDegree[vertex] > outDegree[vertex]) {
+                sink.accept(vertexIds[vertex]);
+                checkModCount(expectedModCount);
+            }
+        }
+    }
+
+    public java.util.stream.IntStream verticesWithMinDegreeStream(int vertexDegree) {
+        int expectedModCount = modCount;
+        return java.util.stream.IntStream.range(0, currentVertices)
+                .map(i -> vertexOrder[i])
+                .filter(v -> checkModCount(expectedModCount) && outDegree[v] + inDegree[v] >= vertexDegree)
+                .map(v -> vertexIds[v]);
+    }
+
+    public java.util.stream.IntStream verticesWithInDominantDegreeStream() {
+        int expectedModCount = modCount;
+        return java.util.stream.IntStream.range(0, currentVertices)
+                .map(i -> vertexOrder[i])
+                .filter(v -> checkModCount(expectedModCount) && inDegree[v] > outDegree[v])
+                .map(v -> vertexIds[v]);
+    }
+
+    // Вспомогательный метод, проверяющий, что граф не изменился
+    private boolean checkModCount(int expectedModCount) {
+        if (modCount != expectedModCount)
+            throw new java.util.ConcurrentModificationException();
+
+        return true;
+    }
+
+    // Метод, передающий получателю вершины, достижимые за n ходов из
+    // указанной вершины (без создания массива результата)
+    public void verticesWithinNSteps(int vertexId, int n, java.util.function.IntConsumer sink) {
+        if (n <= 0)
+            return;
+
+        int count = walkNSteps(vertexId, n, false);
+        this.consumeFrontier(count, sink);
+    }
+
+    public void verticesWithinNStepsReverse(int vertexId, int n, java.util.function.IntConsumer sink) {
+        if (n <= 0)
+            return;
+
+        int count = walkNSteps(vertexId, n, true);
+        this.consumeFrontier(count, sink);
+    }
+
+    // Вспомогательный метод, передающий получателю первые count вершин
+    // буфера frontier. Пока работает получатель, буфер занят
+    private void consumeFrontier(int count, java.util.function.IntConsumer sink) {
+        int expectedModCount = modCount;
+        frontierInUse = true;
+        try {
+            for (int i = 0; i < count; ++i) {
+                sink.accept(vertexIds[frontier[i]]);
+                checkModCount(expectedModCount);
+            }
+        } finally {
+            frontierInUse = false;
+        }
+    }
+
+    // Ленивый итератор по списку смежности вершины
+    // (удалённые места списка пропускаются)
+    private class NeighbourIterator implements java.util.PrimitiveIterator.OfInt {
+        private final int[] neighbours;
+        private final int length;
+        private final int expectedModCount = modCount;
+        private int position = 0;
+
+        NeighbourIterator(int[] neighbours, int length) {
+            this.neighbours = neighbours;
+            this.length = length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position < length && neighbours[position] == -1)
+                ++position;
+            return position < length;
+        }
+
+        @Override
+        public int nextInt() {
+            checkModCount(expectedModCount);
+            if (!hasNext())
+                throw new java.util.NoSuchElementException();
+
+            return vertexIds[neighbours[position++]];
+        }
+    }
+
+    // Метод, возвращающий итератор по вершинам, куда ведёт указанная вершина
+    public java.util.PrimitiveIterator.OfInt successorsIterator(int vertexId) {
+        int index = vertexIndex.get(vertexId);
+        return index == -1 ? new NeighbourIterator(new int[0], 0)
+                : new NeighbourIterator(outNeighbours[index], outLength[index]);
+    }
+
+    // Метод, возвращающий итератор по вершинам, из которых ведут рёбра в указанную
+    public java.util.PrimitiveIterator.OfInt predecessorsIterator(int vertexId) {
+        int index = vertexIndex.get(vertexId);
+        return index == -1 ? new NeighbourIterator(new int[0], 0)
+                : new NeighbourIterator(inNeighbours[index], inLength[index]);
+    }
+
+    // Вспомогательный метод, копирующий список смежности вершины с номером
+    // index из графа source без удалённых мест. Массивы позиций рёбер
+    // должны вмещать номера рёбер source
+    private void copyList(DirectedGraph source, boolean reverse, int index) {
+        int[] neighbours = reverse ? source.inNeighbours[index] : source.outNeighbours[index];
+        int[] edges = reverse ? source.inEdges[index] : source.outEdges[index];
+        int length = reverse ? source.inLength[index] : source.outLength[index];
+        int[] positions = reverse ? edgeInPosition : edgeOutPosition;
+        int count = reverse ? source.inNeighbourCount[index] : source.outDegree[index];
+        int[] newNeighbours = new int[count];
+        int[] newEdges = new int[count];
+        count = 0;
+        for (int i = 0; i < length; ++i)
+            if (neighbours[i] != -1) {
+                newNeighbours[count] = neighbours[i];
+                newEdges[count] = edges[i];
+                positions[edges[i]] = count;
+                ++count;
+            }
+
+        if (reverse) {
+            inNeighbours[index] = newNeighbours;
+            inEdges[index] = newEdges;
+            inLength[index] = count;
+        } else {
+            outNeighbours[index] = newNeighbours;
+            outEdges[index] = newEdges;
+            outLength[index] = count;
+        }
+    }
+
+    // Метод, складывающий два графа
+    public DirectedGraph plus(DirectedGraph graph) {
+        long start = GraphMetrics.start();
+        // Результирующий граф содержит рёбра обоих графов
+        DirectedGraph newGraph = new DirectedGraph(currentEdges + graph.currentEdges);
+
+        // Сначала копируем значение этого графа в результирующий (вместе
+        // с номерами вершин и освободившимися номерами)
+        newGraph.ensureVertexCapacity(this.usedNumbers);
+        newGraph.ensureEdgeCapacity(this.edgeSlots);
+        newGraph.currentEdges = this.currentEdges;
+        newGraph.edgeSlots = this.edgeSlots;
+        newGraph.currentVertices = this.currentVertices;
+        newGraph.usedNumbers = this.usedNumbers;
+        newGraph.freeNumbers = java.util.Arrays.copyOf(this.freeNumbers, this.freeCount);
+        newGraph.freeCount = this.freeCount;
+        for (int i = 0; i < this.edgeSlots; ++i) {
+            newGraph.edgeFrom[i] = this.edgeFrom[i];
+            newGraph.edgeTo[i] = this.edgeTo[i];
+            newGraph.edgeRemoved[i] = this.edgeRemoved[i];
+        }
+        newGraph.edgeIndex = this.edgeIndex.copy();
+
+        for (int i = 0; i < this.currentVertices; ++i) {
+            newGraph.vertexOrder[i] = this.vertexOrder[i];
+        }
+        newGraph.vertexIndex = this.vertexIndex.copy();
+        for (int i = 0; i < this.usedNumbers; ++i) {
+            newGraph.vertexIds[i] = this.vertexIds[i];
+            newGraph.orderPosition[i] = this.orderPosition[i];
+            newGraph.outDegree[i] = this.outDegree[i];
+            newGraph.inDegree[i] = this.inDegree[i];
+            // У освободившихся номеров списков нет. Списки копируются
+            // без удалённых мест
+            if (this.outNeighbours[i] != null) {
+                newGraph.copyList(this, false, i);
+                newGraph.copyList(this, true, i);
+            }
+            newGraph.inNeighbourCount[i] = this.inNeighbourCount[i];
+        }
+
+        // Затем добавляем рёбра второго графа, которых нет в этом. Проверка
+        // идёт по индексу рёбер, поэтому сложение занимает O(E1 + E2)
+        boolean[] absent = graph.edgeMask(this, false);
+        newGraph.ensureEdgeCapacity(newGraph.edgeSlots + graph.currentEdges);
+        for (int i = 0; i < graph.edgeSlots; ++i)
+            if (absent[i])
+                newGraph.appendEdge(graph.edgeFrom[i], graph.edgeTo[i], graph.edgeKey(i));
+
+        GraphMetrics.elementsCopied(3L * this.edgeSlots + this.currentVertices + 7L * this.usedNumbers);
+        GraphMetrics.record(GraphMetrics.Operation.PLUS, start);
+        return newGraph;
+    }
+
+    // Метод, вычитающий из графа другой граф: в результате остаются все
+    // вершины этого графа и те его рёбра, которых нет во втором графе
+    public DirectedGraph minus(DirectedGraph graph) {
+        long start = GraphMetrics.start();
+        boolean[] kept = this.edgeMask(graph, false);
+        DirectedGraph newGraph = new DirectedGraph(Math.max(currentEdges, 1));
+        newGraph.ensureVertexCapacity(currentVertices);
+        for (int i = 0; i < currentVertices; ++i)
+            newGraph.addVertex(vertexIds[vertexOrder[i]]);
+        for (int i = 0; i < edgeSlots; ++i)
+            if (kept[i])
+                newGraph.appendEdge(edgeFrom[i], edgeTo[i], edgeKey(i));
+
+        GraphMetrics.record(GraphMetrics.Operation.MINUS, start);
+        return newGraph;
+    }
+
+    // Метод, находящий пересечение графов: рёбра, которые есть в обоих
+    // графах, и вершины этого графа, которые есть и во втором
+    public DirectedGraph intersect(DirectedGraph graph) {
+        long start = GraphMetrics.start();
+        boolean[] kept = this.edgeMask(graph, true);
+        DirectedGraph newGraph = new DirectedGraph(Math.max(Math.min(currentEdges, graph.currentEdges), 1));
+        for (int i = 0; i < currentVertices; ++i)
+            if (graph.vertexIndex.containsKey(vertexIds[vertexOrder[i]]))
+                newGraph.addVertex(vertexIds[vertexOrder[i]]);
+        for (int i = 0; i < edgeSlots; ++i)
+            if (kept[i])
+                newGraph.appendEdge(edgeFrom[i], edgeTo[i], edgeKey(i));
+
+        GraphMetrics.record(GraphMetrics.Operation.INTERSECT, start);
+        return newGraph;
+    }
+
+    // Число мест в массивах рёбер, начиная с которого рёбра проверяются
+    // параллельно (fork/join), и размер части для одной задачи
+    private static final int PARALLEL_MASK_THRESHOLD = 1 << 18;
+    private static final int MASK_CHUNK = 1 << 15;
+
+    // Вспомогательный метод, отмечающий неудалённые рёбра этого графа, которые
+    // есть (present = true) или которых нет (present = false) в другом графе.
+    // Индекс рёбер другого графа только читается, поэтому для больших графов
+    // проверка делится на части и выполняется в общем пуле fork/join
+    private boolean[] edgeMask(DirectedGraph graph, boolean present) {
+        GraphMetrics.edgesScanned(edgeSlots);
+        boolean[] mask = new boolean[edgeSlots];
+        if (edgeSlots >= PARALLEL_MASK_THRESHOLD)
+            java.util.concurrent.ForkJoinPool.commonPool()
+                    .invoke(new EdgeMaskTask(this, graph, present, mask, 0, edgeSlots));
+        else
+            fillEdgeMask(graph, present, mask, 0, edgeSlots);
+
+        return mask;
+    }
+
+    private void fillEdgeMask(DirectedGraph graph, boolean present, boolean[] mask, int from, int to) {
+        for (int i = from; i < to; ++i)
+            mask[i] = !edgeRemoved[i] && graph.edgeIndex.containsKey(edgeKey(i)) == present;
+    }
+
+    // Задача fork/join, заполняющая часть маски рёбер [from, to)
+    private static class EdgeMaskTask extends java.util.concurrent.RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final DirectedGraph source;
+        private final DirectedGraph graph;
+        private final boolean present;
+        private final boolean[] mask;
+        private final int from;
+        private final int to;
+
+        EdgeMaskTask(DirectedGraph source, DirectedGraph graph, boolean present, boolean[] mask, int from, int to) {
+            this.source = source;
+            this.graph = graph;
+            this.present = present;
+            this.mask = mask;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MASK_CHUNK) {
+                source.fillEdgeMask(graph, present, mask, from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new EdgeMaskTask(source, graph, present, mask, from, middle),
+                    new EdgeMaskTask(source, graph, present, mask, middle, to));
+        }
+    }
+
+    // Метод, строящий неизменяемое представление графа в формате CSR
+    public CsrGraph toCsr() {
+        int[] csrVertexIds = new int[currentVertices];
+        for (int i = 0; i < currentVertices; ++i)
+            csrVertexIds[i] = vertexIds[vertexOrder[i]];
+
+        // Рёбра задаются местами вершин в порядке вершин графа
+        int[] csrEdgeFrom = new int[currentEdges];
+        int[] csrEdgeTo = new int[currentEdges];
+        int count = 0;
+        for (int i = 0; i < edgeSlots; ++i)
+            if (!edgeRemoved[i]) {
+                csrEdgeFrom[count] = orderPosition[vertexIndex.get(edgeFrom[i])];
+                csrEdgeTo[count] = orderPosition[vertexIndex.get(edgeTo[i])];
+                ++count;
+            }
+
+        return new CsrGraph(csrVertexIds, csrEdgeFrom, csrEdgeTo, currentEdges);
+    }
+
+    // Метод, сохраняющий граф в двоичный снимок (см. GraphSnapshot).
+    // В снимок записывается и представление CSR (как toCsr()), поэтому
+    // GraphSnapshot.toCsr() его не строит. withDegrees = true - записать
+    // в снимок и степени вершин, чтобы при открытии их не нужно было считать
+    public void save(java.nio.file.Path file, boolean withDegrees) throws java.io.IOException {
+        // Вершины в снимке идут в порядке вершин графа, рёбра задаются
+        // местами вершин в этом порядке, как в toCsr()
+        int[] snapshotIds = new int[currentVertices];
+        int[] snapshotOut = new int[currentVertices];
+        int[] snapshotIn = new int[currentVertices];
+        for (int i = 0; i < currentVertices; ++i) {
+            snapshotIds[i] = vertexIds[vertexOrder[i]];
+            snapshotOut[i] = outDegree[vertexOrder[i]];
+            snapshotIn[i] = inDegree[vertexOrder[i]];
+        }
+
+        int[] snapshotFrom = new int[currentEdges];
+        int[] snapshotTo = new int[currentEdges];
+        int count = 0;
+        for (int i = 0; i < edgeSlots; ++i)
+            if (!edgeRemoved[i]) {
+                snapshotFrom[count] = orderPosition[vertexIndex.get(edgeFrom[i])];
+                snapshotTo[count] = orderPosition[vertexIndex.get(edgeTo[i])];
+                ++count;
+            }
+
+        CsrGraph csr = frozen != null ? frozen : this.toCsr();
+        GraphSnapshot.write(file, snapshotIds, currentVertices, snapshotFrom, snapshotTo, currentEdges,
+                csr, withDegrees ? snapshotOut : null, withDegrees ? snapshotIn : null);
+    }
+
+    public void save(java.nio.file.Path file) throws java.io.IOException {
+        save(file, true);
+    }
+
+    // Метод, загружающий граф из двоичного снимка. Это медленный путь:
+    // изменяемый граф восстанавливается по одному ребру, с индексами
+    // вершин и рёбер и списками смежности, за O(V + E) вставок в хеш-таблицы.
+    // Для одного только чтения быстрее GraphSnapshot.open(file).toCsr()
+    public static DirectedGraph load(java.nio.file.Path file) throws java.io.IOException {
+        return GraphSnapshot.open(file).toGraph();
+    }
+
+    // Вспомогательный метод, восстанавливающий граф по массивам снимка:
+    // вершины и рёбра добавляются в том же порядке, место выделяется один раз
+    static DirectedGraph restore(java.nio.IntBuffer snapshotVertexIds, java.nio.IntBuffer snapshotFrom,
+                                 java.nio.IntBuffer snapshotTo, int vertexCount, int edgeCount) {
+        DirectedGraph graph = new DirectedGraph(Math.max(edgeCount, 1));
+        graph.ensureVertexCapacity(vertexCount);
+        graph.vertexIndex.ensureCapacity(vertexCount);
+        for (int i = 0; i < vertexCount; ++i) {
+            if (graph.vertexIndex.containsKey(snapshotVertexIds.get(i)))
+                throw new IllegalArgumentException("Duplicate vertex in snapshot: " + snapshotVertexIds.get(i));
+            graph.addVertex(snapshotVertexIds.get(i));
+        }
+
+        for (int i = 0; i < edgeCount; ++i) {
+            int from = snapshotFrom.get(i), to = snapshotTo.get(i);
+            if (from < 0 || from >= vertexCount || to < 0 || to >= vertexCount)
+                throw new IllegalArgumentException("Edge refers to missing vertex number " + (from < 0 || from >= vertexCount ? from : to));
+
+            int vertexFrom = graph.vertexIds[graph.vertexOrder[from]], vertexTo = graph.vertexIds[graph.vertexOrder[to]];
+            long key = edgeKey(vertexFrom, vertexTo);
+            if (graph.edgeIndex.containsKey(key))
+                throw new IllegalArgumentException("Duplicate edge in snapshot: " + vertexFrom + " -> " + vertexTo);
+            graph.appendEdge(vertexFrom, vertexTo, key);
+        }
+
+        return graph;
+    }
+
+    // Метод, возвращающий представление CSR текущего состояния графа.
+    // Пока граф не изменяется, повторно возвращается то же представление
+    public CsrGraph freeze() {
+        if (frozen == null)
+            frozen = toCsr();
+
+        return frozen;
+    }
+
+    // Метод, возвращающий индекс достижимости текущего состояния графа.
+    // Индекс привязан к представлению freeze() и перестраивается при
+    // первом обращении после изменения графа
+    public ReachabilityIndex reachabilityIndex() {
+        return freeze().reachabilityIndex();
+    }
+
+    // Метод, проверяющий, есть ли путь из vertexFrom в vertexTo
+    public boolean reachable(int vertexFrom, int vertexTo) {
+        return reachabilityIndex().reachable(vertexFrom, vertexTo);
+    }
+
+    // Метод, возвращающий наименьшее число рёбер пути из vertexFrom
+    // в vertexTo или -1, если пути нет
+    public int distance(int vertexFrom, int vertexTo) {
+        return reachabilityIndex().distance(vertexFrom, vertexTo);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder();
+        try {
+            writeEdges(res);
+        } catch (java.io.IOException e) {
+            // StringBuilder не бросает IOException
+            throw new java.io.UncheckedIOException(e);
+        }
+
+        return res.toString();
+    }
+}
@@ -0,0 +1,236 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Загрузчик больших списков рёбер из файла в граф. Файл отображается в память
+// (FileChannel.map) окнами, числа разбираются прямо из байтов без создания
+// строк, а рёбра передаются графу порциями через DirectedGraph.addEdges.
+// Поддерживаются два формата:
+//  - текстовый: по одной паре "from to" в строке (числа разделяются
+//    пробелами, табуляцией или запятой). Строки, начинающиеся с '#' или '%',
+//    считаются комментариями, пустые строки пропускаются. Строка с другим
+//    числом ID (например, строка размеров "rows cols nnz" формата
+//    Matrix Market) - ошибка;
+//  - двоичный: пары 4-байтных целых (little-endian) подряд
+public class EdgeListLoader {
+    // Размер окна отображения файла. Для двоичного формата кратен размеру
+    // пары, чтобы пара не разрезалась на границе окон
+    private static final long WINDOW_SIZE = 1L << 28;
+    // Число рёбер в одной порции, передаваемой графу
+    private static final int BATCH_SIZE = 1 << 16;
+
+    private final DirectedGraph graph;
+    private final int[] batchFrom = new int[BATCH_SIZE];
+    private final int[] batchTo = new int[BATCH_SIZE];
+    private int batchCount = 0;
+
+    // Статистика последней загрузки
+    private long edgesRead = 0;
+    private long edgesAdded = 0;
+    private long elapsedNanos = 0;
+
+    // Состояние разбора текста. Хранится в полях, т.к. число или строка
+    // могут начаться в одном окне, а закончиться в следующем
+    private long number;
+    private boolean negative;
+    private boolean inNumber;
+    private boolean inComment;
+    private boolean lineStart;
+    // Число ID, прочитанных в текущей строке, и смещение начала строки
+    private int lineIds;
+    private long lineOffset;
+    private int pendingFrom;
+    private int pendingTo;
+
+    public EdgeListLoader(DirectedGraph graph) {
+        this.graph = graph;
+    }
+
+    // Метод, загружающий рёбра из текстового файла. Возвращает число
+    // добавленных в граф рёбер (повторы и петли не добавляются)
+    public long loadText(Path file) throws IOException {
+        return load(file, false);
+    }
+
+    // Метод, загружающий рёбра из двоичного файла с парами int (little-endian)
+    public long loadBinary(Path file) throws IOException {
+        return load(file, true);
+    }
+
+    private long load(Path file, boolean binary) throws IOException {
+        long start = System.nanoTime();
+        edgesRead = 0;
+        edgesAdded = 0;
+        batchCount = 0;
+        resetTextState();
+
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (binary && size % 8 != 0)
+                throw new IllegalArgumentException("Binary edge list size is not a multiple of 8 bytes: " + size);
+
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                if (binary)
+                    parseBinary(window);
+                else
+                    parseText(window, position);
+            }
+        }
+
+        if (!binary)
+            finishText(size);
+        flush();
+        elapsedNanos = System.nanoTime() - start;
+
+        return edgesAdded;
+    }
+
+    // Вспомогательный метод, разбирающий окно двоичного файла
+    private void parseBinary(MappedByteBuffer window) {
+        IntBuffer ints = window.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        while (ints.remaining() > 0) {
+            // Читаем пары прямо в массивы порции, без промежуточных объектов
+            int count = Math.min(BATCH_SIZE - batchCount, ints.remaining() / 2);
+            for (int i = 0; i < count; ++i) {
+                batchFrom[batchCount] = ints.get();
+                batchTo[batchCount] = ints.get();
+                ++batchCount;
+            }
+            edgesRead += count;
+            if (batchCount == BATCH_SIZE)
+                flush();
+        }
+    }
+
+    private void resetTextState() {
+        number = 0;
+        negative = false;
+        inNumber = false;
+        inComment = false;
+        lineStart = true;
+        lineIds = 0;
+        lineOffset = 0;
+    }
+
+    // Вспомогательный метод, разбирающий окно текстового файла.
+    // offset - смещение окна в файле (для сообщений об ошибках)
+    private void parseText(MappedByteBuffer window, long offset) {
+        int limit = window.limit();
+        for (int i = 0; i < limit; ++i) {
+            byte b = window.get(i);
+            if (inComment) {
+                if (b == '\n') {
+                    inComment = false;
+                    lineStart = true;
+                    lineOffset = offset + i + 1;
+                }
+                continue;
+            }
+
+            if (b >= '0' && b <= '9') {
+                number = number * 10 + (b - '0');
+                if (number > (long) Integer.MAX_VALUE + 1)
+                    throw new IllegalArgumentException("Vertex ID out of int range at byte " + (offset + i));
+                inNumber = true;
+                lineStart = false;
+            } else if (b == '-' && !inNumber && !negative) {
+                negative = true;
+                lineStart = false;
+            } else if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == ',') {
+                endNumber(offset + i);
+                if (b == '\n') {
+                    endLine();
+                    lineOffset = offset + i + 1;
+                }
+            } else if ((b == '#' || b == '%') && lineStart) {
+                inComment = true;
+            } else {
+                throw new IllegalArgumentException("Unexpected character '" + (char) b + "' at byte " + (offset + i));
+            }
+        }
+    }
+
+    // Вспомогательный метод, завершающий разбор очередного числа
+    // (первого или второго ID строки)
+    private void endNumber(long position) {
+        if (!inNumber) {
+            if (negative)
+                throw new IllegalArgumentException("Lone '-' at byte " + position);
+            return;
+        }
+
+        long value = negative ? -number : number;
+        if (value > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Vertex ID out of int range at byte " + position);
+
+        if (lineIds == 2)
+            throw new IllegalArgumentException("More than two vertex IDs in line at byte " + lineOffset);
+        if (lineIds == 0)
+            pendingFrom = (int) value;
+        else
+            pendingTo = (int) value;
+        ++lineIds;
+
+        number = 0;
+        negative = false;
+        inNumber = false;
+    }
+
+    // Вспомогательный метод, завершающий строку: строка без ID пропускается,
+    // строка с парой ID даёт ребро
+    private void endLine() {
+        if (lineIds == 1)
+            throw new IllegalArgumentException("Single vertex ID in line at byte " + lineOffset);
+
+        if (lineIds == 2) {
+            batchFrom[batchCount] = pendingFrom;
+            batchTo[batchCount] = pendingTo;
+            ++edgesRead;
+            if (++batchCount == BATCH_SIZE)
+                flush();
+        }
+        lineIds = 0;
+        lineStart = true;
+    }
+
+    // Последняя строка может не заканчиваться переводом строки
+    private void finishText(long size) {
+        endNumber(size);
+        endLine();
+    }
+
+    // Вспомогательный метод, передающий накопленную порцию рёбер графу
+    private void flush() {
+        if (batchCount > 0)
+            edgesAdded += graph.addEdges(batchFrom, batchTo, batchCount);
+        batchCount = 0;
+    }
+
+    // Число пар, прочитанных из файла при последней загрузке
+    public long edgesRead() {
+        return edgesRead;
+    }
+
+    // Число рёбер, добавленных в граф при последней загрузке
+    public long edgesAdded() {
+        return edgesAdded;
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Скорость последней загрузки в прочитанных рёбрах в секунду
+    public double edgesPerSecond() {
+        return elapsedNanos == 0 ? 0 : edgesRead * 1e9 / elapsedNanos;
+    }
+}
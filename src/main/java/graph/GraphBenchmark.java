@@ -0,0 +1,266 @@
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+// Замеры производительности операций DirectedGraph на синтетических графах
+// (случайный, степенной, цепочка) разного размера. Для каждой операции
+// выводятся пропускная способность (операций в секунду) и число байт,
+// выделенных в куче на одну операцию (по счётчику выделения памяти потока).
+// Каждая операция сначала прогревается: запуски повторяются, пока JIT не
+// выйдет на устойчивый режим (пропускная способность последних запусков
+// перестаёт меняться), затем замеряется серия запусков. Выводятся медиана
+// пропускной способности, её разброс (медиана отклонений от медианы, в %),
+// наименьшее и наибольшее значения и число замеренных запусков. Звёздочка
+// после числа запусков - прогрев не стабилизировался за WARMUP_MAX_NANOS,
+// такому результату доверять нельзя.
+// Запуск: java -cp target/classes graph.GraphBenchmark [наибольшее число рёбер,
+// по умолчанию 100000]. Те же операции замеряются через JMH в модуле jmh.
+// Размеры графов - степени 10 от 1000 до указанного числа
+public class GraphBenchmark {
+    // Прогрев длится не меньше WARMUP_MIN_NANOS (время самой операции, без
+    // подготовки) и заканчивается, когда пропускная способность последних
+    // STABLE_WINDOW запусков отличается от их медианы не больше чем на
+    // STABLE_SPREAD, но не позже WARMUP_MAX_NANOS
+    private static final long WARMUP_MIN_NANOS = 1_000_000_000L;
+    private static final long WARMUP_MAX_NANOS = 10_000_000_000L;
+    private static final int STABLE_WINDOW = 5;
+    private static final double STABLE_SPREAD = 0.05;
+    // Замер: не меньше MEASURED_MIN_RUNS запусков и MEASURE_MIN_NANOS времени
+    private static final int MEASURED_MIN_RUNS = 10;
+    private static final long MEASURE_MIN_NANOS = 1_000_000_000L;
+
+    // Результат операций накапливается, чтобы JIT не выбросил их как ненужные
+    private static long blackhole = 0;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Замеряемая операция над подготовленными данными. Возвращает число
+    // выполненных операций
+    private interface Operation {
+        int run(Workload workload);
+    }
+
+    // Входные данные замера: рёбра графа и заранее построенные графы
+    static final class Workload {
+        final int[] from;
+        final int[] to;
+        final int vertexCount;
+        DirectedGraph graph;
+        DirectedGraph other;
+
+        Workload(int[] from, int[] to, int vertexCount) {
+            this.from = from;
+            this.to = to;
+            this.vertexCount = vertexCount;
+        }
+
+        DirectedGraph build() {
+            DirectedGraph graph = new DirectedGraph();
+            graph.addEdges(from, to);
+            return graph;
+        }
+    }
+
+    // Случайный граф: концы рёбер выбираются равновероятно
+    static Workload randomGraph(int edgeCount, Random random) {
+        int vertexCount = Math.max(2, edgeCount / 4);
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        for (int i = 0; i < edgeCount; ++i) {
+            from[i] = random.nextInt(vertexCount);
+            to[i] = random.nextInt(vertexCount);
+        }
+
+        return new Workload(from, to, vertexCount);
+    }
+
+    // Степенной граф (предпочтительное присоединение): конец ребра с
+    // вероятностью 1/2 берётся из концов уже созданных рёбер, поэтому
+    // вершины с большой степенью получают новые рёбра чаще
+    static Workload powerLawGraph(int edgeCount, Random random) {
+        int vertexCount = Math.max(2, edgeCount / 4);
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        for (int i = 0; i < edgeCount; ++i) {
+            from[i] = i > 0 && random.nextBoolean() ? to[random.nextInt(i)] : random.nextInt(vertexCount);
+            to[i] = i > 0 && random.nextBoolean() ? from[random.nextInt(i)] : random.nextInt(vertexCount);
+        }
+
+        return new Workload(from, to, vertexCount);
+    }
+
+    // Цепочка 0 -> 1 -> 2 -> ...
+    static Workload chainGraph(int edgeCount, Random random) {
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        for (int i = 0; i < edgeCount; ++i) {
+            from[i] = i;
+            to[i] = i + 1;
+        }
+
+        return new Workload(from, to, edgeCount + 1);
+    }
+
+    // Метод, возвращающий граф указанной формы (random, power-law или chain).
+    // Используется и замерами JMH (модуль jmh)
+    static Workload workload(String shape, int edgeCount, Random random) {
+        switch (shape) {
+            case "random":
+                return randomGraph(edgeCount, random);
+            case "power-law":
+                return powerLawGraph(edgeCount, random);
+            case "chain":
+                return chainGraph(edgeCount, random);
+            default:
+                throw new IllegalArgumentException("Unknown graph shape: " + shape);
+        }
+    }
+
+    // Вспомогательный метод, замеряющий операцию и выводящий строку результата.
+    // prepare вызывается перед каждым запуском и в замер не входит
+    private static void measure(String shape, int edgeCount, String name, Workload workload,
+                                Runnable prepare, Operation operation) {
+        // Прогрев
+        double[] recent = new double[STABLE_WINDOW];
+        int warmupRuns = 0;
+        long warmupNanos = 0;
+        boolean stable = false;
+        while (!stable && warmupNanos < WARMUP_MAX_NANOS) {
+            prepare.run();
+            long start = System.nanoTime();
+            int count = Math.max(operation.run(workload), 1);
+            long elapsed = Math.max(System.nanoTime() - start, 1);
+            recent[warmupRuns % STABLE_WINDOW] = count * 1e9 / elapsed;
+            ++warmupRuns;
+            warmupNanos += elapsed;
+            stable = warmupNanos >= WARMUP_MIN_NANOS && warmupRuns >= STABLE_WINDOW
+                    && relativeRange(recent) <= STABLE_SPREAD;
+        }
+
+        long threadId = Thread.currentThread().getId();
+        double[] throughput = new double[MEASURED_MIN_RUNS];
+        int runs = 0;
+        long measuredNanos = 0;
+        long allocated = 0;
+        long operations = 0;
+        while (runs < MEASURED_MIN_RUNS || measuredNanos < MEASURE_MIN_NANOS) {
+            prepare.run();
+            long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            int count = Math.max(operation.run(workload), 1);
+            long elapsed = Math.max(System.nanoTime() - start, 1);
+            allocated += THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            operations += count;
+            measuredNanos += elapsed;
+            if (runs == throughput.length)
+                throughput = java.util.Arrays.copyOf(throughput, runs * 2);
+            throughput[runs] = count * 1e9 / elapsed;
+            ++runs;
+        }
+
+        throughput = java.util.Arrays.copyOf(throughput, runs);
+        java.util.Arrays.sort(throughput);
+        double median = median(throughput);
+        double[] deviations = new double[runs];
+        for (int i = 0; i < runs; ++i)
+            deviations[i] = Math.abs(throughput[i] - median);
+        java.util.Arrays.sort(deviations);
+
+        System.out.printf("%-10s %10d  %-30s %14.0f ops/s +-%5.1f%%  [%.0f .. %.0f] %6d%s runs %12.1f B/op%n",
+                shape, edgeCount, name, median, 100 * median(deviations) / median,
+                throughput[0], throughput[runs - 1], runs, stable ? " " : "*", (double) allocated / operations);
+    }
+
+    // Медиана отсортированного массива
+    private static double median(double[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    // Отношение размаха значений к их медиане
+    private static double relativeRange(double[] values) {
+        double[] sorted = values.clone();
+        java.util.Arrays.sort(sorted);
+        return (sorted[sorted.length - 1] - sorted[0]) / median(sorted);
+    }
+
+    private static void benchmark(String shape, int edgeCount, Workload w, Random random) {
+        Runnable none = () -> {};
+        Runnable fresh = () -> w.graph = w.build();
+        // Для операций с вершинами берём не больше этого числа запусков,
+        // чтобы большие графы замерялись за разумное время
+        int queries = Math.min(1000, w.vertexCount);
+        int[] starts = new int[queries];
+        for (int i = 0; i < queries; ++i)
+            starts[i] = w.from[random.nextInt(w.from.length)];
+
+        measure(shape, edgeCount, "addEdge", w, none, x -> {
+            DirectedGraph graph = new DirectedGraph();
+            int added = 0;
+            for (int i = 0; i < x.from.length; ++i)
+                if (graph.addEdge(x.from[i], x.to[i]))
+                    ++added;
+            blackhole += added;
+            return x.from.length;
+        });
+        measure(shape, edgeCount, "addEdges (bulk)", w, none, x -> {
+            blackhole += new DirectedGraph().addEdges(x.from, x.to);
+            return x.from.length;
+        });
+        measure(shape, edgeCount, "deleteEdge", w, fresh, x -> {
+            for (int i = x.from.length - 1; i >= 0; --i)
+                blackhole += x.graph.deleteEdge(x.from[i], x.to[i]) ? 1 : 0;
+            return x.from.length;
+        });
+        measure(shape, edgeCount, "deleteVertex", w, fresh, x -> {
+            for (int start : starts)
+                blackhole += x.graph.deleteVertex(start) ? 1 : 0;
+            return starts.length;
+        });
+        measure(shape, edgeCount, "edgeRedirect", w, fresh, x -> {
+            for (int i = 0; i < x.from.length; ++i)
+                blackhole += x.graph.edgeRedirect(x.from[i], x.to[i]) ? 1 : 0;
+            return x.from.length;
+        });
+        fresh.run();
+        measure(shape, edgeCount, "verticesWithMinDegree", w, none, x -> {
+            for (int i = 0; i < 10; ++i)
+                blackhole += x.graph.verticesWithMinDegree(i).length;
+            return 10;
+        });
+        measure(shape, edgeCount, "verticesWithInDominantDegree", w, none, x -> {
+            for (int i = 0; i < 10; ++i)
+                blackhole += x.graph.verticesWithInDominantDegree().length;
+            return 10;
+        });
+        measure(shape, edgeCount, "verticesWithinTwoSteps", w, none, x -> {
+            for (int start : starts)
+                blackhole += x.graph.verticesWithinTwoSteps(start).length;
+            return starts.length;
+        });
+        measure(shape, edgeCount, "verticesWithinNSteps(n=4)", w, none, x -> {
+            for (int start : starts)
+                blackhole += x.graph.verticesWithinNSteps(start, 4).length;
+            return starts.length;
+        });
+        w.other = randomGraph(edgeCount, random).build();
+        measure(shape, edgeCount, "plus", w, none, x -> {
+            blackhole += x.graph.plus(x.other).verticesWithMinDegree(Integer.MAX_VALUE).length;
+            return 1;
+        });
+        w.graph = null;
+        w.other = null;
+    }
+
+    public static void main(String[] args) {
+        int maxEdges = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Random random = new Random(42);
+        for (int edgeCount = 1000; edgeCount <= maxEdges; edgeCount *= 10) {
+            for (String shape : new String[] {"random", "power-law", "chain"})
+                benchmark(shape, edgeCount, workload(shape, edgeCount, random), random);
+        }
+        System.out.println("(checksum " + blackhole + ")");
+    }
+}
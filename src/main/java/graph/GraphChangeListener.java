@@ -0,0 +1,41 @@
+package graph;
+
+// Подписчик на изменения DirectedGraph (см. DirectedGraph.addChangeListener).
+// События приходят сразу после изменения, в том порядке, в котором граф
+// изменялся, поэтому по ним можно поддерживать свои производные данные
+// (степени, кеши достижимости и т.п.) за время, пропорциональное изменению,
+// а не пересчитывать их по всему графу.
+// Все методы по умолчанию ничего не делают, переопределяются только нужные.
+// Внутри обработчика граф изменять нельзя
+public interface GraphChangeListener {
+    // Добавлена вершина (вместе с первым ребром, которое её касается)
+    default void vertexAdded(int vertexId) {
+    }
+
+    // Добавлено ребро vertexFrom -> vertexTo
+    default void edgeAdded(int vertexFrom, int vertexTo) {
+    }
+
+    // Удалено ребро vertexFrom -> vertexTo
+    default void edgeRemoved(int vertexFrom, int vertexTo) {
+    }
+
+    // Ребро vertexFrom -> vertexTo стало ребром vertexTo -> vertexFrom
+    default void edgeRedirected(int vertexFrom, int vertexTo) {
+    }
+
+    // Удалена вершина. Рёбра, удалённые вместе с ней, сообщаются событиями
+    // edgeRemoved до этого события (в одной пачке с ним)
+    default void vertexRemoved(int vertexId) {
+    }
+
+    // Начало и конец пачки событий одной массовой операции (addEdges,
+    // deleteVertex, deleteVerticesWithMinDegreeDifference). Пачки не
+    // вкладываются: вложенные операции входят во внешнюю пачку. Подписчик
+    // может накапливать события и обновлять свои данные один раз в конце
+    default void batchStarted() {
+    }
+
+    default void batchFinished() {
+    }
+}
@@ -0,0 +1,196 @@
+package graph;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Необязательные метрики операций DirectedGraph: число вызовов и гистограмма
+// длительности каждой операции, число просмотренных рёбер и скопированных
+// элементов массивов (рост массивов, сдвиги в списках смежности, уплотнение).
+// Метрики включаются свойством JVM -Dgraph.metrics=true. Переключатель -
+// статическая константа, поэтому при выключенных метриках JIT убирает
+// проверки целиком и накладных расходов нет.
+// Если включена запись JDK Flight Recorder, каждая операция также
+// записывается событием graph.Operation
+public final class GraphMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("graph.metrics");
+
+    // Замеряемые операции
+    public enum Operation {
+        ADD_EDGE, ADD_EDGES, DELETE_EDGE, DELETE_VERTEX, EDGE_REDIRECT, BATCH,
+        VERTICES_WITH_MIN_DEGREE, VERTICES_WITH_IN_DOMINANT_DEGREE, VERTICES_WITHIN_N_STEPS,
+        DELETE_VERTICES_WITH_MIN_DEGREE_DIFFERENCE, MIN_DEGREE_DIFFERENCE_LAYERS, PLUS, MINUS, INTERSECT
+    }
+
+    // Корзина гистограммы i содержит длительности из [2^i, 2^(i+1)) нс
+    // (корзина 0 - также длительность 0)
+    public static final int BUCKETS = 64;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final LongAdder[] calls = new LongAdder[OPERATIONS.length];
+    private static final LongAdder[] totalNanos = new LongAdder[OPERATIONS.length];
+    private static final LongAdder[][] histograms = new LongAdder[OPERATIONS.length][BUCKETS];
+    private static final LongAdder edgesScanned = new LongAdder();
+    private static final LongAdder elementsCopied = new LongAdder();
+
+    static {
+        for (int i = 0; i < OPERATIONS.length; ++i) {
+            calls[i] = new LongAdder();
+            totalNanos[i] = new LongAdder();
+            for (int j = 0; j < BUCKETS; ++j)
+                histograms[i][j] = new LongAdder();
+        }
+    }
+
+    private GraphMetrics() {
+    }
+
+    // Событие JFR с данными одной операции
+    @jdk.jfr.Name("graph.Operation")
+    @jdk.jfr.Label("Graph Operation")
+    @jdk.jfr.Category("DirectedGraph")
+    static final class OperationEvent extends jdk.jfr.Event {
+        @jdk.jfr.Label("Operation")
+        String operation;
+
+        @jdk.jfr.Label("Latency")
+        @jdk.jfr.Timespan(jdk.jfr.Timespan.NANOSECONDS)
+        long latency;
+    }
+
+    // Метод, вызываемый в начале операции. Возвращает отметку времени
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // Метод, вызываемый в конце операции, начатой в момент start
+    static void record(Operation operation, long start) {
+        if (!ENABLED)
+            return;
+
+        long latency = System.nanoTime() - start;
+        int index = operation.ordinal();
+        calls[index].increment();
+        totalNanos[index].add(latency);
+        histograms[index][bucket(latency)].increment();
+
+        OperationEvent event = new OperationEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation.name();
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    static void edgesScanned(long count) {
+        if (ENABLED)
+            edgesScanned.add(count);
+    }
+
+    static void elementsCopied(long count) {
+        if (ENABLED)
+            elementsCopied.add(count);
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    // Метод, обнуляющий все метрики
+    public static void reset() {
+        for (int i = 0; i < OPERATIONS.length; ++i) {
+            calls[i].reset();
+            totalNanos[i].reset();
+            for (LongAdder counter : histograms[i])
+                counter.reset();
+        }
+        edgesScanned.reset();
+        elementsCopied.reset();
+    }
+
+    // Метод, возвращающий копию текущих значений метрик
+    public static Snapshot snapshot() {
+        return new Snapshot();
+    }
+
+    // Значения метрик на момент вызова snapshot(). Счётчики читаются без
+    // общей блокировки, поэтому при параллельных операциях значения разных
+    // счётчиков могут относиться к немного разным моментам
+    public static final class Snapshot {
+        private final long[] calls = new long[OPERATIONS.length];
+        private final long[] totalNanos = new long[OPERATIONS.length];
+        private final long[][] histograms = new long[OPERATIONS.length][BUCKETS];
+        private final long edgesScanned;
+        private final long elementsCopied;
+
+        private Snapshot() {
+            for (int i = 0; i < OPERATIONS.length; ++i) {
+                calls[i] = GraphMetrics.calls[i].sum();
+                totalNanos[i] = GraphMetrics.totalNanos[i].sum();
+                for (int j = 0; j < BUCKETS; ++j)
+                    histograms[i][j] = GraphMetrics.histograms[i][j].sum();
+            }
+            edgesScanned = GraphMetrics.edgesScanned.sum();
+            elementsCopied = GraphMetrics.elementsCopied.sum();
+        }
+
+        public long calls(Operation operation) {
+            return calls[operation.ordinal()];
+        }
+
+        public long totalNanos(Operation operation) {
+            return totalNanos[operation.ordinal()];
+        }
+
+        // Гистограмма длительностей (см. BUCKETS)
+        public long[] histogram(Operation operation) {
+            return histograms[operation.ordinal()].clone();
+        }
+
+        // Метод, возвращающий верхнюю границу корзины, в которую попадает
+        // указанный процентиль длительности (в нс), или 0, если вызовов нет
+        public long percentileNanos(Operation operation, double percentile) {
+            if (percentile < 0 || percentile > 100)
+                throw new IllegalArgumentException("Percentile out of range: " + percentile);
+
+            long count = calls(operation);
+            if (count == 0)
+                return 0;
+
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            long[] histogram = histograms[operation.ordinal()];
+            for (int i = 0; i < BUCKETS; ++i) {
+                seen += histogram[i];
+                if (seen >= rank && seen > 0)
+                    return i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+
+            return Long.MAX_VALUE;
+        }
+
+        public long edgesScanned() {
+            return edgesScanned;
+        }
+
+        public long elementsCopied() {
+            return elementsCopied;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder res = new StringBuilder();
+            for (Operation operation : OPERATIONS) {
+                long count = calls(operation);
+                if (count == 0)
+                    continue;
+                res.append(operation).append(": calls ").append(count)
+                        .append(", mean ").append(totalNanos(operation) / count).append(" ns")
+                        .append(", p50 <= ").append(percentileNanos(operation, 50)).append(" ns")
+                        .append(", p99 <= ").append(percentileNanos(operation, 99)).append(" ns\n");
+            }
+            res.append("edges scanned ").append(edgesScanned)
+                    .append(", elements copied ").append(elementsCopied).append('\n');
+
+            return res.toString();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Двоичный снимок направленного графа в файле. Снимок открывается
+// отображением файла в память: массивы читаются прямо из отображения,
+// поэтому открытие не создаёт объектов на каждое ребро.
+// Формат файла (все числа - int little-endian, кроме контрольной суммы):
+//  - заголовок: MAGIC, VERSION, флаги, число вершин V, число рёбер E,
+//    резерв (0), контрольная сумма CRC32 данных (long);
+//  - ID вершин (V чисел) в порядке вершин графа;
+//  - начальные и конечные вершины рёбер (по E чисел), заданные номерами
+//    вершин в таблице вершин, в порядке добавления рёбер;
+//  - если установлен флаг FLAG_CSR - готовое представление CSR:
+//    outOffsets (V + 1 чисел), outTargets (E), inOffsets (V + 1),
+//    inSources (E), как в CsrGraph;
+//  - если установлен флаг FLAG_DEGREES - число выходящих и входящих рёбер
+//    каждой вершины (по V чисел)
+// Снимок с CSR превращается в CsrGraph без раскладки рёбер по вершинам:
+// массивы читаются из отображения целиком и передаются в CsrGraph как есть
+public class GraphSnapshot {
+    static final int MAGIC = 0x44475346;
+    static final int VERSION = 1;
+    static final int FLAG_DEGREES = 1;
+    static final int FLAG_CSR = 2;
+    private static final int HEADER_SIZE = 32;
+    // Наибольшее число элементов массива, отображаемого одним буфером
+    private static final int MAX_MAPPED_INTS = Integer.MAX_VALUE / 4;
+
+    private final int vertexCount;
+    private final int edgeCount;
+    private final IntBuffer vertexIds;
+    private final IntBuffer edgeFrom;
+    private final IntBuffer edgeTo;
+    // Степени вершин: из файла, если они там есть, иначе считаются при открытии
+    private final IntBuffer outDegree;
+    private final IntBuffer inDegree;
+    // Представление CSR из файла или null, если его там нет
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+
+    private GraphSnapshot(int vertexCount, int edgeCount, IntBuffer vertexIds, IntBuffer edgeFrom,
+                          IntBuffer edgeTo, IntBuffer outDegree, IntBuffer inDegree, IntBuffer outOffsets,
+                          IntBuffer outTargets, IntBuffer inOffsets, IntBuffer inSources) {
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.vertexIds = vertexIds;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.outDegree = outDegree;
+        this.inDegree = inDegree;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+    }
+
+    // Метод, открывающий снимок. Файл с чужим форматом или версией,
+    // обрезанный или повреждённый файл отвергается (IllegalArgumentException)
+    public static GraphSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE)
+                throw new IllegalArgumentException("Snapshot is truncated: " + size + " bytes");
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC)
+                throw new IllegalArgumentException("Not a graph snapshot: " + file);
+            if (header.getInt(4) != VERSION)
+                throw new IllegalArgumentException("Unsupported snapshot version: " + header.getInt(4));
+
+            int flags = header.getInt(8);
+            int vertexCount = header.getInt(12);
+            int edgeCount = header.getInt(16);
+            long checksum = header.getLong(24);
+            if (vertexCount < 0 || edgeCount < 0 || vertexCount > MAX_MAPPED_INTS || edgeCount > MAX_MAPPED_INTS)
+                throw new IllegalArgumentException("Invalid snapshot header: "
+                        + vertexCount + " vertices, " + edgeCount + " edges");
+
+            boolean withDegrees = (flags & FLAG_DEGREES) != 0;
+            boolean withCsr = (flags & FLAG_CSR) != 0;
+            if (withCsr && vertexCount == MAX_MAPPED_INTS)
+                throw new IllegalArgumentException("Invalid snapshot header: " + vertexCount + " vertices");
+            long expectedSize = HEADER_SIZE + 4L * (vertexCount + 2L * edgeCount
+                    + (withCsr ? 2L * (vertexCount + 1) + 2L * edgeCount : 0) + (withDegrees ? 2L * vertexCount : 0));
+            if (size != expectedSize)
+                throw new IllegalArgumentException("Snapshot size " + size + " does not match header (" + expectedSize + ")");
+
+            // Каждый массив отображается отдельным буфером
+            CRC32 crc = new CRC32();
+            long position = HEADER_SIZE;
+            IntBuffer vertexIds = map(channel, position, vertexCount, crc);
+            position += 4L * vertexCount;
+            IntBuffer edgeFrom = map(channel, position, edgeCount, crc);
+            position += 4L * edgeCount;
+            IntBuffer edgeTo = map(channel, position, edgeCount, crc);
+            position += 4L * edgeCount;
+            IntBuffer outOffsets = null, outTargets = null, inOffsets = null, inSources = null;
+            if (withCsr) {
+                outOffsets = map(channel, position, vertexCount + 1, crc);
+                position += 4L * (vertexCount + 1);
+                outTargets = map(channel, position, edgeCount, crc);
+                position += 4L * edgeCount;
+                inOffsets = map(channel, position, vertexCount + 1, crc);
+                position += 4L * (vertexCount + 1);
+                inSources = map(channel, position, edgeCount, crc);
+                position += 4L * edgeCount;
+            }
+            IntBuffer outDegree = null, inDegree = null;
+            if (withDegrees) {
+                outDegree = map(channel, position, vertexCount, crc);
+                position += 4L * vertexCount;
+                inDegree = map(channel, position, vertexCount, crc);
+            }
+
+            if (crc.getValue() != checksum)
+                throw new IllegalArgumentException("Snapshot checksum mismatch: " + file);
+
+            if (!withDegrees) {
+                // Степеней в файле нет - считаем их один раз по рёбрам
+                int[] out = new int[vertexCount];
+                int[] in = new int[vertexCount];
+                for (int i = 0; i < edgeCount; ++i) {
+                    int from = checkedVertex(edgeFrom.get(i), vertexCount);
+                    int to = checkedVertex(edgeTo.get(i), vertexCount);
+                    ++out[from];
+                    if (from != to)
+                        ++in[to];
+                }
+                outDegree = IntBuffer.wrap(out);
+                inDegree = IntBuffer.wrap(in);
+            }
+
+            return new GraphSnapshot(vertexCount, edgeCount, vertexIds, edgeFrom, edgeTo, outDegree, inDegree,
+                    outOffsets, outTargets, inOffsets, inSources);
+        }
+    }
+
+    // Вспомогательный метод, отображающий в память массив из count чисел
+    // и учитывающий его в контрольной сумме
+    private static IntBuffer map(FileChannel channel, long position, int count, CRC32 crc) throws IOException {
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        crc.update(bytes.duplicate());
+
+        return bytes.asIntBuffer();
+    }
+
+    private static int checkedVertex(int vertex, int vertexCount) {
+        if (vertex < 0 || vertex >= vertexCount)
+            throw new IllegalArgumentException("Edge refers to missing vertex number " + vertex);
+
+        return vertex;
+    }
+
+    // Метод, записывающий снимок в файл. Рёбра задаются номерами вершин
+    // в массиве vertexIds, csr - представление CSR с той же нумерацией
+    // вершин. Если outDegree равен null, степени не записываются
+    static void write(Path file, int[] vertexIds, int vertexCount, int[] edgeFrom, int[] edgeTo, int edgeCount,
+                      CsrGraph csr, int[] outDegree, int[] inDegree) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 crc = new CRC32();
+
+            // Данные пишутся после заголовка, сам заголовок - в конце,
+            // когда известна контрольная сумма
+            channel.position(HEADER_SIZE);
+            writeInts(channel, buffer, crc, vertexIds, vertexCount);
+            writeInts(channel, buffer, crc, edgeFrom, edgeCount);
+            writeInts(channel, buffer, crc, edgeTo, edgeCount);
+            writeInts(channel, buffer, crc, csr.outOffsets(), vertexCount + 1);
+            writeInts(channel, buffer, crc, csr.outTargets(), edgeCount);
+            writeInts(channel, buffer, crc, csr.inOffsets(), vertexCount + 1);
+            writeInts(channel, buffer, crc, csr.inSources(), edgeCount);
+            if (outDegree != null) {
+                writeInts(channel, buffer, crc, outDegree, vertexCount);
+                writeInts(channel, buffer, crc, inDegree, vertexCount);
+            }
+            flush(channel, buffer, crc);
+
+            buffer.clear();
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(FLAG_CSR | (outDegree != null ? FLAG_DEGREES : 0))
+                    .putInt(vertexCount).putInt(edgeCount).putInt(0).putLong(crc.getValue());
+            buffer.flip();
+            long position = 0;
+            while (buffer.hasRemaining())
+                position += channel.write(buffer, position);
+            channel.force(false);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, CRC32 crc, int[] values, int count)
+            throws IOException {
+        for (int i = 0; i < count; ++i) {
+            if (buffer.remaining() < 4)
+                flush(channel, buffer, crc);
+            buffer.putInt(values[i]);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    // ID вершины с указанным номером
+    public int vertexId(int vertex) {
+        return vertexIds.get(vertex);
+    }
+
+    // ID начальной и конечной вершины ребра с указанным номером
+    public int edgeFrom(int edge) {
+        return vertexIds.get(edgeFrom.get(edge));
+    }
+
+    public int edgeTo(int edge) {
+        return vertexIds.get(edgeTo.get(edge));
+    }
+
+    // Метод, возвращающий список вершин с указанным числом рёбер и более
+    public int[] verticesWithMinDegree(int vertexDegree) {
+        int count = 0;
+        for (int v = 0; v < vertexCount; ++v)
+            if (outDegree.get(v) + inDegree.get(v) >= vertexDegree)
+                ++count;
+
+        int[] result = new int[count];
+        count = 0;
+        for (int v = 0; v < vertexCount; ++v)
+            if (outDegree.get(v) + inDegree.get(v) >= vertexDegree)
+                result[count++] = vertexIds.get(v);
+
+        return result;
+    }
+
+    // Метод, возвращающий список вершин таких, что число рёбер входящих
+    // в вершину больше числа рёбер выходящих из вершины
+    public int[] verticesWithInDominantDegree() {
+        int count = 0;
+        for (int v = 0; v < vertexCount; ++v)
+            if (inDegree.get(v) > outDegree.get(v))
+                ++count;
+
+        int[] result = new int[count];
+        count = 0;
+        for (int v = 0; v < vertexCount; ++v)
+            if (inDegree.get(v) > outDegree.get(v))
+                result[count++] = vertexIds.get(v);
+
+        return result;
+    }
+
+    // Метод, строящий по снимку представление CSR. Если CSR записано
+    // в снимке, его массивы читаются целиком и проверяются за O(V + E),
+    // рёбра по вершинам не раскладываются
+    public CsrGraph toCsr() {
+        int[] ids = new int[vertexCount];
+        vertexIds.get(0, ids);
+        if (outOffsets != null)
+            return new CsrGraph(ids, checkedOffsets(outOffsets), checkedTargets(outTargets),
+                    checkedOffsets(inOffsets), checkedTargets(inSources));
+
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        edgeFrom.get(0, from);
+        edgeTo.get(0, to);
+        for (int i = 0; i < edgeCount; ++i) {
+            checkedVertex(from[i], vertexCount);
+            checkedVertex(to[i], vertexCount);
+        }
+
+        return new CsrGraph(ids, from, to, edgeCount);
+    }
+
+    // Вспомогательный метод, читающий массив начал списков CSR и
+    // проверяющий, что списки идут подряд и покрывают все рёбра
+    private int[] checkedOffsets(IntBuffer buffer) {
+        int[] offsets = new int[vertexCount + 1];
+        buffer.get(0, offsets);
+        if (offsets[0] != 0 || offsets[vertexCount] != edgeCount)
+            throw new IllegalArgumentException("Invalid CSR offsets in snapshot");
+        for (int v = 0; v < vertexCount; ++v)
+            if (offsets[v] > offsets[v + 1])
+                throw new IllegalArgumentException("Invalid CSR offsets in snapshot");
+
+        return offsets;
+    }
+
+    private int[] checkedTargets(IntBuffer buffer) {
+        int[] targets = new int[edgeCount];
+        buffer.get(0, targets);
+        for (int i = 0; i < edgeCount; ++i)
+            checkedVertex(targets[i], vertexCount);
+
+        return targets;
+    }
+
+    // Метод, восстанавливающий по снимку изменяемый граф
+    public DirectedGraph toGraph() {
+        return DirectedGraph.restore(vertexIds, edgeFrom, edgeTo, vertexCount, edgeCount);
+    }
+}
@@ -0,0 +1,186 @@
+package graph;
+
+// Хеш-таблица с открытой адресацией (линейное пробирование), отображающая
+// ключ типа long в неотрицательное значение типа int. Ключи и значения
+// хранятся в примитивных массивах, поэтому при поиске не создаются объекты
+class LongIntHashMap {
+    // Значение -1 в массиве значений обозначает пустую ячейку,
+    // поэтому хранить можно только неотрицательные значения
+    static final int NO_VALUE = -1;
+
+    // Минимальная вместимость таблицы (всегда степень двойки)
+    private static final int MIN_CAPACITY = 16;
+    // Наибольшая вместимость таблицы
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private int[] values;
+    // mask = вместимость - 1, используется вместо взятия остатка от деления
+    private int mask;
+    private int size = 0;
+    // Таблица заполняется не более чем наполовину, иначе цепочки
+    // линейного пробирования становятся слишком длинными
+    private int threshold;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    // Вспомогательный метод, возвращающий вместимость (степень двойки),
+    // достаточную для хранения указанного количества элементов
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity < 2L * expectedSize)
+            capacity <<= 1;
+
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        java.util.Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+        threshold = capacity / 2;
+    }
+
+    // Перемешивание битов ключа, чтобы соседние ключи не попадали в соседние ячейки
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Вспомогательный метод, возвращающий номер ячейки с ключом или -1
+    private int slotOf(long key) {
+        int slot = hash(key) & mask;
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    // Метод, возвращающий значение по ключу или NO_VALUE, если ключа нет
+    public int get(long key) {
+        int slot = slotOf(key);
+        return slot == -1 ? NO_VALUE : values[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return slotOf(key) != -1;
+    }
+
+    // Метод, добавляющий или заменяющий значение по ключу.
+    // Возвращает прошлое значение или NO_VALUE
+    public int put(long key, int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Value must be non-negative: " + value);
+
+        int slot = hash(key) & mask;
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        ++size;
+
+        if (size > threshold && keys.length < MAX_CAPACITY)
+            rehash(keys.length << 1);
+
+        return NO_VALUE;
+    }
+
+    // Метод, удаляющий ключ. Возвращает удалённое значение или NO_VALUE
+    public int remove(long key) {
+        int slot = slotOf(key);
+        if (slot == -1)
+            return NO_VALUE;
+
+        int removed = values[slot];
+
+        // Вместо пометки "удалено" сдвигаем назад следующие элементы цепочки,
+        // чтобы поиск не проходил по удалённым ячейкам
+        int free = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (values[next] == NO_VALUE)
+                break;
+
+            // Ячейка, в которую элемент попал бы без коллизий
+            int home = hash(keys[next]) & mask;
+            // Элемент можно перенести, только если его "домашняя" ячейка
+            // не лежит (циклически) между освободившейся и текущей
+            boolean between = free <= next
+                    ? free < home && home <= next
+                    : free < home || home <= next;
+            if (!between) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+
+        values[free] = NO_VALUE;
+        --size;
+
+        return removed;
+    }
+
+    // Метод, заранее увеличивающий таблицу под указанное число элементов,
+    // чтобы при массовом добавлении не перестраивать её много раз
+    public void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > keys.length)
+            rehash(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(values, NO_VALUE);
+        size = 0;
+    }
+
+    // Метод, возвращающий независимую копию таблицы
+    public LongIntHashMap copy() {
+        LongIntHashMap copy = new LongIntHashMap();
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.mask = mask;
+        copy.size = size;
+        copy.threshold = threshold;
+
+        return copy;
+    }
+
+    // Вспомогательный метод, переносящий все элементы в таблицу новой вместимости
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; ++i)
+            if (oldValues[i] != NO_VALUE) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != NO_VALUE)
+                    slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+    }
+}
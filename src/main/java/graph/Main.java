@@ -0,0 +1,721 @@
+package graph;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ConcurrentModificationException;
+import java.util.PrimitiveIterator;
+import java.util.Scanner;
+
+public class Main {
+    public static PrintStream out = System.out;
+    public static Scanner in = new Scanner(System.in);
+
+    public static void main(String[] args) {
+        // Test 1
+        {
+            out.println("Test 1");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 2);
+            g.addEdge(1, 3);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            out.println(g);
+        }
+
+        // Test 2
+        {
+            out.println("Test 2");
+            DirectedGraph g = new DirectedGraph();
+            out.println(g.addEdge(1, 1));
+            out.println(g.addEdge(1, 3));
+            out.println(g.addEdge(3, 2));
+            out.println(g.addEdge(2, 4));
+            out.println(g.addEdge(2,4));
+            out.println(g.addEdge(4, 2));
+            out.println(g);
+        }
+
+        // Test 3
+        {
+            out.println("Test 3");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 1);
+            g.printVertices();
+            g.addEdge(1,3);
+            g.printVertices();
+            g.addEdge(2,4);
+            g.printVertices();
+        }
+
+        // Test 4
+        {
+            out.println("Test 4");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            int[] n = g.verticesWithMinDegree(3);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+        }
+
+        // Test 5
+        {
+            out.println("Test 5");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            int[] n = g.verticesWithInDominantDegree();
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+        }
+
+        // Test 6
+        {
+            out.println("Test 6");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1,2);
+            g.addEdge(1,3);
+            g.addEdge(2,4);
+            g.addEdge(3,4);
+            out.println(g);
+            out.println(g.edgeRedirect(1,2));
+            out.println(g.edgeRedirect(1,4));
+            out.println(g);
+            // Обратное ребро 3 -> 1 уже есть, ребро 1 -> 3 не перенаправляется
+            g.addEdge(3,1);
+            out.println(g.edgeRedirect(1,3));
+            out.println(g);
+        }
+
+        // Test 7
+        {
+            out.println("Test 7");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            out.println(g);
+            out.println(g.deleteEdge(1, 4));
+            out.println(g.deleteEdge(1, 2));
+            out.println(g);
+        }
+
+        // Test 8
+        {
+            out.println("Test 8");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            out.println(g);
+            out.println(g.deleteVertex(4));
+            out.println(g.deleteVertex(0));
+            out.println(g);
+        }
+
+        // Test 9
+        {
+            out.println("Test 9");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            out.println(g);
+            g.printVertices();
+            // Разница степеней 0 у вершин 1, 3 и 7, все они удаляются
+            g.deleteVerticesWithMinDegreeDifference();
+            out.println(g);
+            g.printVertices();
+        }
+
+        // Test 10
+        {
+            out.println("Test 10");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            int[] n = g.verticesWithinTwoSteps(1);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+        }
+
+        // Test 11
+        {
+            out.println("Test 11");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            int[] n = g.verticesWithinNSteps(1, 2);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            n = g.verticesWithinNSteps(1, 3);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            n = g.verticesWithinNSteps(1, 1);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+        }
+
+        // Test 12
+        {
+            out.println("Test 12");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            DirectedGraph g1 = new DirectedGraph();
+            g1.addEdge(4, 1);
+            g1.addEdge(4, 2);
+            g1.addEdge(4, 3);
+            g1.addEdge(5, 4);
+            g1.addEdge(6, 4);
+            g1.addEdge(7, 5);
+            g1.addEdge(1, 5);
+            g1.addEdge(6, 7);
+            g1.addEdge(3, 6);
+
+            out.println(g);
+            out.println(g1);
+
+            DirectedGraph g2 = g.plus(g1);
+            out.println(g2);
+
+            // Все рёбра g1 обратны рёбрам g, поэтому общих рёбер нет
+            out.println(g.intersect(g1).freeze().edgeCount() + " " + g.minus(g).freeze().edgeCount());
+            // Общие с g рёбра 1 -> 4, 4 -> 5 и 6 -> 3
+            DirectedGraph g3 = new DirectedGraph();
+            g3.addEdge(1, 4);
+            g3.addEdge(4, 5);
+            g3.addEdge(5, 8);
+            g3.addEdge(6, 3);
+            g3.addEdge(9, 1);
+            DirectedGraph difference = g.minus(g3);
+            out.print(difference);
+            for (int x : difference.verticesWithMinDegree(0))
+                out.print(x + " ");
+            out.println();
+            DirectedGraph common = g.intersect(g3);
+            out.print(common);
+            for (int x : common.verticesWithMinDegree(0))
+                out.print(x + " ");
+            out.println();
+        }
+
+        // Test 13
+        {
+            out.println("Test 13");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            CsrGraph csr = g.freeze();
+            int[] n = csr.verticesWithMinDegree(3);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            n = csr.verticesWithInDominantDegree();
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            n = csr.verticesWithinNSteps(1, 3);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            n = csr.predecessors(4);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+        }
+
+        // Test 14
+        {
+            out.println("Test 14");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 2);
+            int[] from = {1, 2, 3, 2, 4, 1, 3};
+            int[] to = {2, 3, 4, 3, 4, 3, 1};
+            out.println(g.addEdges(from, to));
+            out.println(g);
+        }
+
+        // Test 15
+        {
+            out.println("Test 15");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            int[] n = g.predecessors(4);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            n = g.verticesWithinNStepsReverse(6, 2);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            g.deleteVertex(4);
+            n = g.predecessors(6);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+        }
+
+        // Test 16
+        {
+            out.println("Test 16");
+            try {
+                Path text = Files.createTempFile("edges", ".txt");
+                Files.write(text, "# comment\n1 2\n2 3\n3 1\n2 3\n".getBytes());
+                DirectedGraph g = new DirectedGraph();
+                EdgeListLoader loader = new EdgeListLoader(g);
+                out.println(loader.loadText(text));
+                out.println(g);
+
+                Path binary = Files.createTempFile("edges", ".bin");
+                ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(3).putInt(4).putInt(4).putInt(1);
+                Files.write(binary, buffer.array());
+                out.println(loader.loadBinary(binary));
+                out.println(g);
+
+                // В каждой строке должна быть ровно одна пара ID
+                Files.write(text, "1 2 3\n4 5\n".getBytes());
+                try {
+                    loader.loadText(text);
+                } catch (IllegalArgumentException e) {
+                    out.println(e.getMessage());
+                }
+                Files.write(text, "%%MatrixMarket matrix coordinate pattern general\n5 5 2\n1 2\n".getBytes());
+                try {
+                    loader.loadText(text);
+                } catch (IllegalArgumentException e) {
+                    out.println(e.getMessage());
+                }
+                Files.write(text, "1 2\n\n7\n".getBytes());
+                try {
+                    loader.loadText(text);
+                } catch (IllegalArgumentException e) {
+                    out.println(e.getMessage());
+                }
+
+                Files.delete(text);
+                Files.delete(binary);
+            } catch (IOException e) {
+                out.println(e);
+            }
+        }
+
+        // Test 17
+        {
+            out.println("Test 17");
+            try {
+                DirectedGraph g = new DirectedGraph();
+                g.addEdge(1, 4);
+                g.addEdge(2, 4);
+                g.addEdge(4, 4);
+                g.addEdge(4, 5);
+                g.deleteEdge(2, 4);
+                Path file = Files.createTempFile("graph", ".snap");
+                g.save(file);
+                GraphSnapshot snapshot = GraphSnapshot.open(file);
+                int[] n = snapshot.verticesWithMinDegree(2);
+                for (int x : n)
+                    out.print(x + " ");
+                out.println();
+                out.println(DirectedGraph.load(file));
+                // Представление CSR берётся из снимка готовым
+                CsrGraph csr = snapshot.toCsr();
+                out.println(csr.successors(4).length + " " + csr.predecessors(4).length + " "
+                        + csr.verticesWithinNSteps(1, 2).length);
+
+                // Обрезанный файл отвергается
+                byte[] bytes = Files.readAllBytes(file);
+                Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 4));
+                try {
+                    GraphSnapshot.open(file);
+                } catch (IllegalArgumentException e) {
+                    out.println(e.getMessage());
+                }
+                Files.delete(file);
+            } catch (IOException e) {
+                out.println(e);
+            }
+        }
+
+        // Test 18
+        {
+            out.println("Test 18");
+            ConcurrentDirectedGraph g = new ConcurrentDirectedGraph();
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; ++t) {
+                int first = t * 100;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 50; ++i)
+                        g.addEdge(first + i, first + i + 1);
+                });
+                threads[t].start();
+            }
+            try {
+                for (Thread thread : threads)
+                    thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.println(g.edgeCount());
+            int[] n = g.verticesWithinNSteps(100, 3);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            out.println(g.edgeRedirect(101, 102));
+            out.println(g.deleteVertex(102));
+            out.println(g.edgeCount());
+
+            // Тот же граф в DirectedGraph: рёбра идут в том же порядке,
+            // а вершины - нет (DirectedGraph ставит на место удалённой
+            // вершины последнюю), поэтому наборы вершин сравниваются
+            // после сортировки
+            DirectedGraph d = new DirectedGraph();
+            ConcurrentDirectedGraph c = new ConcurrentDirectedGraph(2);
+            int[][] edges = {{1, 2}, {2, 3}, {3, 1}, {4, 1}, {5, 4}};
+            for (int[] edge : edges) {
+                d.addEdge(edge[0], edge[1]);
+                c.addEdge(edge[0], edge[1]);
+            }
+            d.deleteVertex(2);
+            c.deleteVertex(2);
+            int[] fromD = d.verticesWithMinDegree(0);
+            int[] fromC = c.verticesWithMinDegree(0);
+            out.println(java.util.Arrays.toString(fromD) + " " + java.util.Arrays.toString(fromC));
+            java.util.Arrays.sort(fromD);
+            java.util.Arrays.sort(fromC);
+            out.println(java.util.Arrays.equals(fromD, fromC) + " " + d.toString().equals(c.toString()));
+
+            ConcurrentDirectedGraph other = new ConcurrentDirectedGraph();
+            other.addEdge(3, 1);
+            other.addEdge(1, 5);
+            out.print(c.plus(other));
+            out.print(c.minus(other));
+            out.print(c.intersect(other));
+            boolean[] results = c.batch().addEdge(5, 3).deleteEdge(4, 1).edgeRedirect(3, 1).apply();
+            out.println(results[0] + " " + results[1] + " " + results[2]);
+            out.print(c);
+            // Получатель вызывается без блокировок и может менять граф
+            c.verticesWithinNSteps(5, 1, v -> c.addEdge(v, 6));
+            out.println(c.edgeCount() + " " + c.peelMinDegreeDifference(1) + " " + c.edgeCount());
+        }
+
+        // Test 19
+        {
+            out.println("Test 19");
+            VersionedDirectedGraph g = new VersionedDirectedGraph();
+            g.addEdge(1, 2);
+            g.addEdge(2, 3);
+            g.addEdge(3, 4);
+            VersionedDirectedGraph.Snapshot snapshot = g.snapshot();
+            g.deleteVertex(3);
+            g.edgeRedirect(1, 2);
+            out.println(snapshot);
+            out.println(g);
+            int[] n = snapshot.verticesWithinNSteps(1, 3);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+
+            // Ребро, добавленное после снимка к вершине большой степени,
+            // копирует путь в дереве её списка, а не весь список
+            VersionedDirectedGraph hubGraph = new VersionedDirectedGraph();
+            for (int i = 1; i <= 100000; ++i)
+                hubGraph.addEdge(0, i);
+            VersionedDirectedGraph.Snapshot before = hubGraph.snapshot();
+            hubGraph.addEdge(0, -1);
+            int copied = hubGraph.listElementsCopiedSince(before, 0);
+            out.println(copied + " " + (copied < 200) + " " + before.successors(0).length + " "
+                    + hubGraph.successors(0).length);
+        }
+
+        // Test 20
+        {
+            out.println("Test 20");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(4, 6);
+            g.addEdge(5, 7);
+            g.addEdge(5, 1);
+            g.addEdge(7, 6);
+            g.addEdge(6, 3);
+            g.verticesWithMinDegree(3, x -> out.print(x + " "));
+            out.println();
+            out.println(g.verticesWithInDominantDegreeStream().sum());
+            g.verticesWithinNSteps(1, 3, x -> out.print(x + " "));
+            out.println();
+            PrimitiveIterator.OfInt it = g.successorsIterator(4);
+            out.println(it.nextInt());
+            g.addEdge(4, 7);
+            try {
+                it.nextInt();
+            } catch (ConcurrentModificationException e) {
+                out.println("ConcurrentModificationException");
+            }
+            // Получатель не может начать новый запрос за n ходов
+            // и не может изменять граф
+            try {
+                g.verticesWithinNSteps(1, 1, x -> g.verticesWithinNSteps(x, 1));
+            } catch (IllegalStateException e) {
+                out.println(e.getMessage());
+            }
+            try {
+                g.verticesWithMinDegree(3, x -> g.addEdge(x, 100));
+            } catch (ConcurrentModificationException e) {
+                out.println("ConcurrentModificationException");
+            }
+            g.verticesWithinNSteps(1, 2, x -> out.print(x + " "));
+            out.println();
+        }
+
+        // Test 21
+        {
+            out.println("Test 21");
+            DirectedGraph g = new DirectedGraph();
+            GraphChangeListener listener = new GraphChangeListener() {
+                @Override
+                public void edgeAdded(int vertexFrom, int vertexTo) {
+                    out.print("+" + vertexFrom + "->" + vertexTo + " ");
+                }
+
+                @Override
+                public void edgeRemoved(int vertexFrom, int vertexTo) {
+                    out.print("-" + vertexFrom + "->" + vertexTo + " ");
+                }
+
+                @Override
+                public void edgeRedirected(int vertexFrom, int vertexTo) {
+                    out.print("~" + vertexFrom + "->" + vertexTo + " ");
+                }
+
+                @Override
+                public void vertexRemoved(int vertexId) {
+                    out.print("-" + vertexId + " ");
+                }
+
+                @Override
+                public void batchStarted() {
+                    out.print("[ ");
+                }
+
+                @Override
+                public void batchFinished() {
+                    out.print("] ");
+                }
+            };
+            g.addChangeListener(listener);
+            g.addEdge(1, 2);
+            g.addEdges(new int[]{2, 3}, new int[]{3, 1});
+            g.edgeRedirect(1, 2);
+            g.deleteVertex(3);
+            out.println();
+            out.println(g.removeChangeListener(listener));
+            g.deleteEdge(2, 1);
+            out.println(g.removeChangeListener(listener));
+        }
+
+        // Test 22
+        {
+            out.println("Test 22");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 4);
+            g.addEdge(2, 4);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            DegreeIndex index = g.degreeIndex();
+            g.addEdge(5, 4);
+            g.addEdge(6, 4);
+            int[] top = index.top(DegreeIndex.Kind.IN, 1);
+            out.println(top[0]);
+            int[] histogram = index.histogram(DegreeIndex.Kind.TOTAL);
+            for (int x : histogram)
+                out.print(x + " ");
+            out.println();
+            g.deleteVertex(4);
+            out.println(index.countInRange(DegreeIndex.Kind.TOTAL, 0, 0));
+            out.println(index.maxDegree(DegreeIndex.Kind.IMBALANCE));
+        }
+
+        // Test 23
+        {
+            out.println("Test 23");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 2);
+            g.addEdge(2, 3);
+            g.addEdge(3, 1);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(6, 5);
+            DirectedGraph.Layers layers = g.minDegreeDifferenceLayers();
+            for (int layer = 0; layer < layers.layerCount; ++layer) {
+                for (int x : layers.layer(layer))
+                    out.print(x + " ");
+                out.println();
+            }
+            out.println(layers.layerOf(4) + " " + layers.layerOf(7));
+            out.println(g.peelMinDegreeDifference(1));
+            out.println(g);
+        }
+
+        // Test 24
+        {
+            out.println("Test 24");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 2);
+            g.addEdge(2, 3);
+            boolean[] results = g.batch()
+                    .addEdge(3, 4)
+                    .addEdge(1, 2)
+                    .deleteEdge(2, 3)
+                    .edgeRedirect(1, 2)
+                    .deleteEdge(2, 3)
+                    .addEdge(2, 3)
+                    .apply();
+            for (boolean x : results)
+                out.print(x + " ");
+            out.println();
+            out.println(g);
+        }
+
+        // Test 25
+        {
+            out.println("Test 25");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 2);
+            g.addEdge(2, 3);
+            g.addEdge(3, 4);
+            g.addEdge(5, 6);
+            StepQueryCache cache = g.enableStepCache(2);
+            g.verticesWithinTwoSteps(1);
+            g.verticesWithinTwoSteps(1);
+            g.verticesWithinTwoSteps(5);
+            // Ребро 6 -> 7 не касается вершин, пройденных из 1
+            g.addEdge(6, 7);
+            int[] n = g.verticesWithinTwoSteps(1);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            g.addEdge(2, 5);
+            n = g.verticesWithinTwoSteps(1);
+            for (int x : n)
+                out.print(x + " ");
+            out.println();
+            g.verticesWithinNSteps(3, 1);
+            g.verticesWithinNSteps(4, 1);
+            out.println(cache);
+        }
+
+        // Test 26
+        {
+            out.println("Test 26");
+            DirectedGraph g = new DirectedGraph();
+            g.addEdge(1, 2);
+            g.addEdge(2, 3);
+            g.addEdge(3, 1);
+            g.addEdge(3, 4);
+            g.addEdge(4, 5);
+            g.addEdge(1, 5);
+            g.addEdge(6, 4);
+            ReachabilityIndex index = g.reachabilityIndex();
+            out.println(index.componentCount() + " " + index.hasClosure());
+            out.println(g.reachable(2, 5) + " " + g.reachable(5, 2) + " " + g.reachable(6, 1));
+            out.println(g.distance(2, 5) + " " + g.distance(3, 2) + " " + g.distance(6, 5) + " " + g.distance(5, 1));
+            out.println(index.reachableWithin(2, 5, 2) + " " + index.reachableWithin(2, 5, 3));
+            // После изменения графа индекс строится заново
+            g.addEdge(5, 6);
+            out.println((g.reachabilityIndex() != index) + " " + g.reachable(5, 2) + " " + g.distance(6, 1));
+            // Много компонент: замыкания нет, недостижимость отсекается
+            // интервальными метками и обходом конденсации
+            DirectedGraph chains = new DirectedGraph();
+            for (int i = 0; i < 9000; ++i) {
+                chains.addEdge(i, i + 1);
+                chains.addEdge(-i, -i - 1);
+            }
+            chains.addEdge(-4500, 4500);
+            ReachabilityIndex chainsIndex = chains.reachabilityIndex();
+            out.println(chainsIndex.hasClosure() + " " + chains.reachable(0, 9000) + " " + chains.reachable(-1, 9000)
+                    + " " + chains.reachable(1, -9000) + " " + chains.reachable(-4501, 4501) + " " + chains.distance(-4499, 4501));
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package graph;
+
+// Персистентное отображение long -> объект (hash array mapped trie).
+// Узлы дерева не изменяются после снимка: изменение копирует только путь
+// от корня до изменённого элемента (O(log32 n) узлов), остальные узлы
+// общие у всех версий. Чтобы между снимками не копировать одни и те же
+// узлы много раз, у каждого узла есть номер эпохи, в которую он создан:
+// узлы текущей эпохи изменяются на месте, а snapshot() начинает новую эпоху.
+// Изменять отображение может только один поток одновременно, снимки можно
+// читать из любых потоков
+class PersistentLongMap {
+    // Узел: bitmap отмечает занятые из 32 ветвей, entries хранит по порядку
+    // элементы (Leaf) и дочерние узлы (Node)
+    private static final class Node {
+        final int epoch;
+        int bitmap;
+        Object[] entries;
+
+        Node(int epoch, int bitmap, Object[] entries) {
+            this.epoch = epoch;
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+    }
+
+    private static final class Leaf {
+        final long key;
+        final Object value;
+
+        Leaf(long key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private Node root;
+    private int size;
+    private int epoch;
+    // Снимок только читается
+    private final boolean readOnly;
+
+    PersistentLongMap() {
+        this.root = new Node(0, 0, new Object[0]);
+        this.readOnly = false;
+    }
+
+    private PersistentLongMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+        this.readOnly = true;
+    }
+
+    // Метод, возвращающий неизменяемый снимок за O(1). Узлы, общие со
+    // снимком, после этого копируются при изменении
+    PersistentLongMap snapshot() {
+        PersistentLongMap snapshot = new PersistentLongMap(root, size);
+        ++epoch;
+
+        return snapshot;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Перемешивание битов ключа (обратимое, поэтому у разных ключей разные хеши)
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static int branch(long hash, int shift) {
+        return (int) (hash >>> shift) & 31;
+    }
+
+    // Метод, возвращающий значение по ключу или null
+    Object get(long key) {
+        long hash = hash(key);
+        Node node = root;
+        for (int shift = 0; ; shift += 5) {
+            int bit = 1 << branch(hash, shift);
+            if ((node.bitmap & bit) == 0)
+                return null;
+
+            Object entry = node.entries[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (entry instanceof Leaf) {
+                Leaf leaf = (Leaf) entry;
+                return leaf.key == key ? leaf.value : null;
+            }
+            node = (Node) entry;
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    // Вспомогательный метод, возвращающий узел, который можно изменять
+    // в текущей эпохе (сам узел или его копию)
+    private Node editable(Node node) {
+        return node.epoch == epoch ? node : new Node(epoch, node.bitmap, node.entries.clone());
+    }
+
+    // Метод, добавляющий или заменяющий значение (value не равно null)
+    void put(long key, Object value) {
+        if (readOnly)
+            throw new IllegalStateException("Snapshot is read-only");
+        if (value == null)
+            throw new IllegalArgumentException("Null values are not supported");
+
+        root = put(root, hash(key), 0, key, value);
+    }
+
+    private Node put(Node node, long hash, int shift, long key, Object value) {
+        int bit = 1 << branch(hash, shift);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Node result = editable(node);
+        if ((node.bitmap & bit) == 0) {
+            Object[] entries = new Object[node.entries.length + 1];
+            System.arraycopy(node.entries, 0, entries, 0, index);
+            entries[index] = new Leaf(key, value);
+            System.arraycopy(node.entries, index, entries, index + 1, node.entries.length - index);
+            result.entries = entries;
+            result.bitmap |= bit;
+            ++size;
+            return result;
+        }
+
+        Object entry = node.entries[index];
+        if (entry instanceof Leaf) {
+            Leaf leaf = (Leaf) entry;
+            if (leaf.key == key) {
+                result.entries[index] = new Leaf(key, value);
+            } else {
+                // Два ключа в одной ветви - спускаем оба на уровень ниже
+                Node child = new Node(epoch, 0, new Object[0]);
+                child = put(child, hash(leaf.key), shift + 5, leaf.key, leaf.value);
+                --size;
+                result.entries[index] = put(child, hash, shift + 5, key, value);
+            }
+        } else {
+            result.entries[index] = put((Node) entry, hash, shift + 5, key, value);
+        }
+
+        return result;
+    }
+
+    // Метод, удаляющий ключ. Возвращает true, если ключ был
+    boolean remove(long key) {
+        if (readOnly)
+            throw new IllegalStateException("Snapshot is read-only");
+
+        int before = size;
+        root = remove(root, hash(key), 0, key);
+
+        return size != before;
+    }
+
+    private Node remove(Node node, long hash, int shift, long key) {
+        int bit = 1 << branch(hash, shift);
+        if ((node.bitmap & bit) == 0)
+            return node;
+
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Object entry = node.entries[index];
+        if (entry instanceof Leaf) {
+            if (((Leaf) entry).key != key)
+                return node;
+
+            Node result = editable(node);
+            Object[] entries = new Object[node.entries.length - 1];
+            System.arraycopy(node.entries, 0, entries, 0, index);
+            System.arraycopy(node.entries, index + 1, entries, index, entries.length - index);
+            result.entries = entries;
+            result.bitmap &= ~bit;
+            --size;
+            return result;
+        }
+
+        Node child = (Node) entry;
+        Node newChild = remove(child, hash, shift + 5, key);
+        if (newChild == child && newChild.epoch != epoch)
+            return node;
+
+        Node result = editable(node);
+        // Узел с единственным элементом заменяется самим элементом
+        if (newChild.entries.length == 1 && newChild.entries[0] instanceof Leaf)
+            result.entries[index] = newChild.entries[0];
+        else
+            result.entries[index] = newChild;
+
+        return result;
+    }
+
+    // Обработчик элементов при обходе
+    interface EntryConsumer {
+        void accept(long key, Object value);
+    }
+
+    // Метод, обходящий все элементы (порядок определяется хешами ключей)
+    void forEach(EntryConsumer consumer) {
+        forEach(root, consumer);
+    }
+
+    private static void forEach(Node node, EntryConsumer consumer) {
+        for (Object entry : node.entries)
+            if (entry instanceof Leaf)
+                consumer.accept(((Leaf) entry).key, ((Leaf) entry).value);
+            else
+                forEach((Node) entry, consumer);
+    }
+}
@@ -0,0 +1,470 @@
+package graph;
+
+// Индекс достижимости для неизменяемого представления CsrGraph
+// (см. CsrGraph.reachabilityIndex и DirectedGraph.reachabilityIndex).
+// Вершины разбиваются на компоненты сильной связности (алгоритм Тарьяна),
+// компоненты образуют ациклический граф конденсации. Компоненты нумеруются
+// в порядке, в котором их находит алгоритм Тарьяна: ребро конденсации
+// всегда ведёт из компоненты с большим номером в компоненту с меньшим,
+// поэтому из компоненты a можно попасть в b только если a >= b.
+// Если компонент немного (транзитивное замыкание занимает не больше
+// MAX_CLOSURE_WORDS слов), для каждой компоненты хранится битовая строка
+// достижимых компонент и запрос reachable выполняется за O(1). Иначе
+// каждой компоненте даются интервальные метки (GRAIL): для LABELINGS
+// обходов конденсации в глубину со случайным порядком вершин и рёбер
+// компонента получает номер rank в порядке выхода из обхода и low -
+// наименьший rank среди достижимых из неё компонент. Если из a можно
+// попасть в b, то интервал b [low, rank] вложен в интервал a в каждой
+// разметке, поэтому невложенные интервалы сразу дают ответ "недостижима".
+// Вложенные интервалы ничего не гарантируют: тогда выполняется обход
+// конденсации, в который не попадают компоненты с номером меньше номера
+// цели и компоненты, чьи метки не содержат метки цели. Метки занимают
+// 2 * LABELINGS * C чисел и строятся за O(LABELINGS * (C + E)), где C и E -
+// число компонент и рёбер конденсации. Худший случай запроса - метки
+// ничего не отсекли - такой же, как без них: обход O(C + E).
+// Расстояние (наименьшее число рёбер пути) ищется двусторонним обходом
+// в ширину только по вершинам, лежащим на каком-нибудь пути между
+// вершинами, а недостижимость определяется по индексу сразу
+public class ReachabilityIndex {
+    // Наибольший размер транзитивного замыкания в словах long (8 МБ)
+    static final int MAX_CLOSURE_WORDS = 1 << 20;
+    // Число интервальных разметок (если замыкания нет)
+    static final int LABELINGS = 3;
+
+    private final int[] vertexIds;
+    private final IntIntHashMap vertexIndex;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    // Номер вершины -> номер компоненты
+    private final int[] component;
+    private final int componentCount;
+    // Рёбра конденсации без повторов: dagTargets[dagOffsets[c] .. dagOffsets[c + 1])
+    private final int[] dagOffsets;
+    private final int[] dagTargets;
+    // Транзитивное замыкание: строка компоненты c занимает слова
+    // closure[c * closureWords .. (c + 1) * closureWords), или null
+    private final long[] closure;
+    private final int closureWords;
+    // Метки компоненты c в разметке t: labelLow[t * componentCount + c]
+    // и labelRank[t * componentCount + c], или null, если есть замыкание
+    private final int[] labelLow;
+    private final int[] labelRank;
+
+    // Буферы обходов свои для каждого потока и общие для всех индексов,
+    // как в CsrGraph
+    private static final ThreadLocal<Search> SEARCH = ThreadLocal.withInitial(Search::new);
+
+    private static class Search {
+        int epoch = 0;
+        int[] forwardStamp = new int[0];
+        int[] forwardDistance = new int[0];
+        int[] backwardStamp = new int[0];
+        int[] backwardDistance = new int[0];
+        int[] forwardFrontier = new int[0];
+        int[] backwardFrontier = new int[0];
+        int[] nextFrontier = new int[0];
+        int[] componentStamp = new int[0];
+        int[] componentStack = new int[0];
+    }
+
+    // Построение за O(V + E) (и O(C * C / 64) для замыкания)
+    ReachabilityIndex(int[] vertexIds, IntIntHashMap vertexIndex, int[] outOffsets, int[] outTargets,
+                      int[] inOffsets, int[] inSources) {
+        this.vertexIds = vertexIds;
+        this.vertexIndex = vertexIndex;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+
+        int vertexCount = vertexIds.length;
+        component = new int[vertexCount];
+        componentCount = findComponents();
+
+        // Вершины раскладываются по компонентам сортировкой подсчётом
+        int[] memberOffsets = new int[componentCount + 1];
+        for (int v = 0; v < vertexCount; ++v)
+            ++memberOffsets[component[v] + 1];
+        for (int c = 0; c < componentCount; ++c)
+            memberOffsets[c + 1] += memberOffsets[c];
+        int[] members = new int[vertexCount];
+        int[] position = java.util.Arrays.copyOf(memberOffsets, componentCount);
+        for (int v = 0; v < vertexCount; ++v)
+            members[position[component[v]]++] = v;
+
+        // Рёбра конденсации, повторы отсекаются отметкой последней компоненты
+        int[] mark = new int[componentCount];
+        java.util.Arrays.fill(mark, -1);
+        int[] targets = new int[outTargets.length];
+        int count = 0;
+        dagOffsets = new int[componentCount + 1];
+        for (int c = 0; c < componentCount; ++c) {
+            for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; ++i) {
+                int v = members[i];
+                for (int j = outOffsets[v]; j < outOffsets[v + 1]; ++j) {
+                    int d = component[outTargets[j]];
+                    if (d != c && mark[d] != c) {
+                        mark[d] = c;
+                        targets[count++] = d;
+                    }
+                }
+            }
+            dagOffsets[c + 1] = count;
+        }
+        dagTargets = java.util.Arrays.copyOf(targets, count);
+
+        int words = (componentCount + 63) >>> 6;
+        if ((long) componentCount * words <= MAX_CLOSURE_WORDS) {
+            closureWords = words;
+            closure = new long[componentCount * words];
+            // Компоненты, в которые ведут рёбра c, имеют меньшие номера,
+            // поэтому их строки к этому моменту уже готовы
+            for (int c = 0; c < componentCount; ++c) {
+                int row = c * words;
+                closure[row + (c >>> 6)] |= 1L << c;
+                for (int i = dagOffsets[c]; i < dagOffsets[c + 1]; ++i) {
+                    int other = dagTargets[i] * words;
+                    // Строка компоненты d содержит только биты с номерами <= d
+                    for (int w = 0; w <= dagTargets[i] >>> 6; ++w)
+                        closure[row + w] |= closure[other + w];
+                }
+            }
+            labelLow = null;
+            labelRank = null;
+        } else {
+            closureWords = 0;
+            closure = null;
+            labelLow = new int[LABELINGS * componentCount];
+            labelRank = new int[LABELINGS * componentCount];
+            buildLabels();
+        }
+    }
+
+    // Вспомогательный метод, строящий интервальные метки компонент.
+    // Обход в глубину нерекурсивный, случайный порядок рёбер задаётся
+    // случайным начальным ребром каждой компоненты. Случайные числа
+    // с постоянным начальным значением, поэтому метки воспроизводимы
+    private void buildLabels() {
+        java.util.Random random = new java.util.Random(componentCount);
+        int[] order = new int[componentCount];
+        for (int c = 0; c < componentCount; ++c)
+            order[c] = c;
+        int[] firstEdge = new int[componentCount];
+        int[] nextEdge = new int[componentCount];
+        int[] visited = new int[componentCount];
+        int[] stack = new int[componentCount];
+
+        for (int t = 0; t < LABELINGS; ++t) {
+            int base = t * componentCount;
+            for (int i = componentCount - 1; i > 0; --i) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            for (int c = 0; c < componentCount; ++c) {
+                int degree = dagOffsets[c + 1] - dagOffsets[c];
+                firstEdge[c] = degree > 0 ? random.nextInt(degree) : 0;
+                nextEdge[c] = 0;
+            }
+
+            int rank = 0;
+            for (int root : order) {
+                if (visited[root] == t + 1)
+                    continue;
+
+                int stackSize = 0;
+                stack[stackSize++] = root;
+                visited[root] = t + 1;
+                while (stackSize > 0) {
+                    int c = stack[stackSize - 1];
+                    int degree = dagOffsets[c + 1] - dagOffsets[c];
+                    if (nextEdge[c] < degree) {
+                        int d = dagTargets[dagOffsets[c] + (firstEdge[c] + nextEdge[c]++) % degree];
+                        if (visited[d] != t + 1) {
+                            visited[d] = t + 1;
+                            stack[stackSize++] = d;
+                        }
+                        continue;
+                    }
+
+                    --stackSize;
+                    labelRank[base + c] = rank++;
+                }
+            }
+
+            // Рёбра ведут в компоненты с меньшими номерами, поэтому low
+            // считается по возрастанию номеров
+            for (int c = 0; c < componentCount; ++c) {
+                int low = labelRank[base + c];
+                for (int i = dagOffsets[c]; i < dagOffsets[c + 1]; ++i)
+                    low = Math.min(low, labelLow[base + dagTargets[i]]);
+                labelLow[base + c] = low;
+            }
+        }
+    }
+
+    // Вспомогательный метод, проверяющий, вложены ли метки компоненты to
+    // в метки компоненты from во всех разметках. Если нет, из from нельзя
+    // попасть в to
+    private boolean labelsContain(int from, int to) {
+        for (int base = 0; base < labelLow.length; base += componentCount)
+            if (labelLow[base + to] < labelLow[base + from] || labelRank[base + to] > labelRank[base + from])
+                return false;
+
+        return true;
+    }
+
+    // Вспомогательный метод, находящий компоненты сильной связности
+    // нерекурсивным алгоритмом Тарьяна. Возвращает число компонент
+    private int findComponents() {
+        int vertexCount = vertexIds.length;
+        int[] order = new int[vertexCount];
+        int[] low = new int[vertexCount];
+        int[] nextEdge = new int[vertexCount];
+        boolean[] onStack = new boolean[vertexCount];
+        int[] stack = new int[vertexCount];
+        int[] callStack = new int[vertexCount];
+        java.util.Arrays.fill(order, -1);
+
+        int counter = 0, stackSize = 0, components = 0;
+        for (int root = 0; root < vertexCount; ++root) {
+            if (order[root] != -1)
+                continue;
+
+            int depth = 0;
+            callStack[depth++] = root;
+            order[root] = low[root] = counter++;
+            nextEdge[root] = outOffsets[root];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth > 0) {
+                int v = callStack[depth - 1];
+                if (nextEdge[v] < outOffsets[v + 1]) {
+                    int w = outTargets[nextEdge[v]++];
+                    if (order[w] == -1) {
+                        order[w] = low[w] = counter++;
+                        nextEdge[w] = outOffsets[w];
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        callStack[depth++] = w;
+                    } else if (onStack[w] && order[w] < low[v]) {
+                        low[v] = order[w];
+                    }
+                    continue;
+                }
+
+                --depth;
+                if (depth > 0 && low[v] < low[callStack[depth - 1]])
+                    low[callStack[depth - 1]] = low[v];
+
+                if (low[v] == order[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        component[w] = components;
+                    } while (w != v);
+                    ++components;
+                }
+            }
+        }
+
+        return components;
+    }
+
+    public int vertexCount() {
+        return vertexIds.length;
+    }
+
+    public int componentCount() {
+        return componentCount;
+    }
+
+    // Метод, возвращающий номер компоненты сильной связности вершины
+    // или -1, если вершины нет. Из компоненты a можно попасть в b только
+    // если a >= b
+    public int component(int vertexId) {
+        int vertex = vertexIndex.get(vertexId);
+        return vertex == -1 ? -1 : component[vertex];
+    }
+
+    // Хранится ли транзитивное замыкание (запрос reachable за O(1))
+    public boolean hasClosure() {
+        return closure != null;
+    }
+
+    // Метод, проверяющий, есть ли путь из vertexFrom в vertexTo
+    // (вершина достижима сама из себя путём из 0 рёбер)
+    public boolean reachable(int vertexFrom, int vertexTo) {
+        int from = vertexIndex.get(vertexFrom);
+        int to = vertexIndex.get(vertexTo);
+        if (from == -1 || to == -1)
+            return false;
+
+        return componentReachable(component[from], component[to]);
+    }
+
+    // Метод, возвращающий наименьшее число рёбер пути из vertexFrom
+    // в vertexTo или -1, если пути нет
+    public int distance(int vertexFrom, int vertexTo) {
+        return boundedDistance(vertexFrom, vertexTo, Integer.MAX_VALUE);
+    }
+
+    // Метод, проверяющий, есть ли путь из vertexFrom в vertexTo не длиннее
+    // maxHops рёбер. Обход останавливается, не дойдя дальше maxHops
+    public boolean reachableWithin(int vertexFrom, int vertexTo, int maxHops) {
+        return maxHops >= 0 && boundedDistance(vertexFrom, vertexTo, maxHops) != -1;
+    }
+
+    private boolean componentReachable(int from, int to) {
+        if (from < to)
+            return false;
+        if (from == to)
+            return true;
+        if (closure != null)
+            return (closure[from * closureWords + (to >>> 6)] & (1L << to)) != 0;
+        if (!labelsContain(from, to))
+            return false;
+
+        // Обход конденсации в глубину. Компоненты с номером меньше to
+        // и с метками, не содержащими метки to, не могут вести в to
+        // и не посещаются
+        Search s = prepare();
+        int stackSize = 0;
+        s.componentStack[stackSize++] = from;
+        s.componentStamp[from] = s.epoch;
+        while (stackSize > 0) {
+            int c = s.componentStack[--stackSize];
+            for (int i = dagOffsets[c]; i < dagOffsets[c + 1]; ++i) {
+                int d = dagTargets[i];
+                if (d == to)
+                    return true;
+                if (d > to && s.componentStamp[d] != s.epoch && labelsContain(d, to)) {
+                    s.componentStamp[d] = s.epoch;
+                    s.componentStack[stackSize++] = d;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // Лежит ли компонента c на каком-нибудь пути из from в to
+    private boolean onPath(int from, int c, int to) {
+        if (closure != null)
+            return componentReachable(from, c) && componentReachable(c, to);
+
+        return c <= from && c >= to && labelsContain(from, c) && labelsContain(c, to);
+    }
+
+    // Вспомогательный метод, возвращающий буферы потока с новой эпохой
+    private Search prepare() {
+        Search s = SEARCH.get();
+        // Буферы только растут, эпоха при этом не сбрасывается: отметки,
+        // оставшиеся в старых буферах, старше текущей эпохи
+        int vertexCount = vertexIds.length;
+        if (s.forwardStamp.length < vertexCount) {
+            s.forwardStamp = new int[vertexCount];
+            s.forwardDistance = new int[vertexCount];
+            s.backwardStamp = new int[vertexCount];
+            s.backwardDistance = new int[vertexCount];
+            s.forwardFrontier = new int[vertexCount];
+            s.backwardFrontier = new int[vertexCount];
+            s.nextFrontier = new int[vertexCount];
+        }
+        if (s.componentStamp.length < componentCount) {
+            s.componentStamp = new int[componentCount];
+            s.componentStack = new int[componentCount];
+        }
+
+        if (++s.epoch == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(s.forwardStamp, 0);
+            java.util.Arrays.fill(s.backwardStamp, 0);
+            java.util.Arrays.fill(s.componentStamp, 0);
+            s.epoch = 1;
+        }
+
+        return s;
+    }
+
+    // Вспомогательный метод, ищущий расстояние не больше maxHops двусторонним
+    // обходом в ширину. Каждый шаг расширяет на один уровень сторону
+    // с меньшим фронтом. Когда новый уровень встречает вершины другой
+    // стороны, наименьшая сумма расстояний по этому уровню - ответ
+    private int boundedDistance(int vertexFrom, int vertexTo, int maxHops) {
+        int from = vertexIndex.get(vertexFrom);
+        int to = vertexIndex.get(vertexTo);
+        if (from == -1 || to == -1 || maxHops < 0)
+            return -1;
+        if (from == to)
+            return 0;
+
+        int fromComponent = component[from], toComponent = component[to];
+        if (!componentReachable(fromComponent, toComponent))
+            return -1;
+
+        Search s = prepare();
+        int epoch = s.epoch;
+        s.forwardStamp[from] = epoch;
+        s.forwardDistance[from] = 0;
+        s.forwardFrontier[0] = from;
+        s.backwardStamp[to] = epoch;
+        s.backwardDistance[to] = 0;
+        s.backwardFrontier[0] = to;
+        int forwardCount = 1, backwardCount = 1;
+        int forwardDepth = 0, backwardDepth = 0;
+
+        while (forwardCount > 0 && backwardCount > 0 && forwardDepth + backwardDepth < maxHops) {
+            boolean forward = forwardCount <= backwardCount;
+            int[] frontier = forward ? s.forwardFrontier : s.backwardFrontier;
+            int count = forward ? forwardCount : backwardCount;
+            int[] offsets = forward ? outOffsets : inOffsets;
+            int[] targets = forward ? outTargets : inSources;
+            int[] stamp = forward ? s.forwardStamp : s.backwardStamp;
+            int[] distance = forward ? s.forwardDistance : s.backwardDistance;
+            int[] otherStamp = forward ? s.backwardStamp : s.forwardStamp;
+            int[] otherDistance = forward ? s.backwardDistance : s.forwardDistance;
+            int depth = (forward ? forwardDepth : backwardDepth) + 1;
+
+            int best = Integer.MAX_VALUE;
+            int nextCount = 0;
+            for (int i = 0; i < count; ++i) {
+                int vertex = frontier[i];
+                for (int j = offsets[vertex]; j < offsets[vertex + 1]; ++j) {
+                    int neighbour = targets[j];
+                    if (stamp[neighbour] == epoch || !onPath(fromComponent, component[neighbour], toComponent))
+                        continue;
+
+                    stamp[neighbour] = epoch;
+                    distance[neighbour] = depth;
+                    s.nextFrontier[nextCount++] = neighbour;
+                    if (otherStamp[neighbour] == epoch && depth + otherDistance[neighbour] < best)
+                        best = depth + otherDistance[neighbour];
+                }
+            }
+
+            if (best != Integer.MAX_VALUE)
+                return best;
+
+            // Новый уровень становится фронтом, старый фронт - буфером
+            int[] next = s.nextFrontier;
+            s.nextFrontier = frontier;
+            if (forward) {
+                s.forwardFrontier = next;
+                forwardCount = nextCount;
+                forwardDepth = depth;
+            } else {
+                s.backwardFrontier = next;
+                backwardCount = nextCount;
+                backwardDepth = depth;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,294 @@
+package graph;
+
+// Кеш результатов запросов verticesWithinNSteps / verticesWithinTwoSteps /
+// verticesWithinNStepsReverse (см. DirectedGraph.enableStepCache).
+// Ключ - (ID вершины, n, направление). Число записей ограничено, при
+// переполнении вытесняется запись, к которой дольше всего не обращались (LRU).
+// Результат запроса зависит только от списков смежности вершин, пройденных
+// обходом (кроме последнего уровня), поэтому запись запоминает ID этих
+// вершин и удаляется, только когда меняются рёбра одной из них. Для этого
+// есть обратный индекс: ID вершины -> записи, которые от неё зависят.
+// Если пройденных вершин больше MAX_DEPENDENCIES, запись вместо них
+// запоминает номер версии графа и считается устаревшей после любого
+// изменения рёбер. Кеш получает изменения как подписчик графа
+public class StepQueryCache implements GraphChangeListener {
+    // Наибольшее число вершин, от которых запись зависит по отдельности
+    static final int MAX_DEPENDENCIES = 1024;
+
+    private final int capacity;
+    // Ключ запроса -> номер записи
+    private final LongIntHashMap entryIndex;
+    private final long[] keys;
+    private final int[][] results;
+    // ID вершин, от которых зависит запись, или null, если запись зависит
+    // от версии графа version
+    private final int[][] dependencies;
+    private final long[] versions;
+    // Поколение записи увеличивается при её удалении, чтобы ссылки на
+    // запись в обратном индексе становились недействительными
+    private final int[] generations;
+    // Список LRU: от последней использованной записи к самой давней
+    private final int[] previous;
+    private final int[] next;
+    private int head = -1;
+    private int tail = -1;
+    private int size = 0;
+    private final int[] freeEntries;
+    private int freeCount;
+
+    // Обратный индекс: ID вершины -> номер списка. Элемент списка -
+    // упакованные поколение и номер записи. Ссылки на вытесненные записи
+    // остаются в списках и вычищаются, когда список нужно увеличить
+    private final IntIntHashMap dependentIndex = new IntIntHashMap();
+    private long[][] dependents = new long[16][];
+    private int[] dependentCount = new int[16];
+    private int[] freeLists = new int[16];
+    private int freeListCount = 0;
+    private int usedLists = 0;
+
+    // Версия графа, увеличивается при каждом изменении рёбер
+    private long version = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    StepQueryCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+
+        this.capacity = capacity;
+        this.entryIndex = new LongIntHashMap(capacity);
+        this.keys = new long[capacity];
+        this.results = new int[capacity][];
+        this.dependencies = new int[capacity][];
+        this.versions = new long[capacity];
+        this.generations = new int[capacity];
+        this.previous = new int[capacity];
+        this.next = new int[capacity];
+        this.freeEntries = new int[capacity];
+        // Свободные записи выдаются с нулевой
+        for (int i = 0; i < capacity; ++i)
+            freeEntries[i] = capacity - 1 - i;
+        this.freeCount = capacity;
+    }
+
+    // Запросы с n от 2^30 не кешируются: n не помещается в ключ
+    static boolean cacheable(int n) {
+        return n < (1 << 30);
+    }
+
+    private static long key(int vertexId, int n, boolean reverse) {
+        return ((long) vertexId << 32) | ((long) n << 1) | (reverse ? 1 : 0);
+    }
+
+    private void unlink(int entry) {
+        if (previous[entry] != -1)
+            next[previous[entry]] = next[entry];
+        else
+            head = next[entry];
+        if (next[entry] != -1)
+            previous[next[entry]] = previous[entry];
+        else
+            tail = previous[entry];
+    }
+
+    private void linkFirst(int entry) {
+        previous[entry] = -1;
+        next[entry] = head;
+        if (head != -1)
+            previous[head] = entry;
+        head = entry;
+        if (tail == -1)
+            tail = entry;
+    }
+
+    // Вспомогательный метод, удаляющий запись и освобождающий её номер
+    private void removeEntry(int entry) {
+        unlink(entry);
+        entryIndex.remove(keys[entry]);
+        results[entry] = null;
+        dependencies[entry] = null;
+        ++generations[entry];
+        freeEntries[freeCount] = entry;
+        ++freeCount;
+        --size;
+    }
+
+    // Метод, возвращающий копию сохранённого результата или null
+    int[] get(int vertexId, int n, boolean reverse) {
+        int entry = entryIndex.get(key(vertexId, n, reverse));
+        if (entry != -1 && dependencies[entry] == null && versions[entry] != version) {
+            removeEntry(entry);
+            ++invalidations;
+            entry = -1;
+        }
+
+        if (entry == -1) {
+            ++misses;
+            return null;
+        }
+
+        ++hits;
+        unlink(entry);
+        linkFirst(entry);
+        return results[entry].clone();
+    }
+
+    // Метод, сохраняющий результат запроса. dependencies - ID пройденных
+    // вершин или null, если их больше MAX_DEPENDENCIES
+    void put(int vertexId, int n, boolean reverse, int[] result, int[] dependencies) {
+        long key = key(vertexId, n, reverse);
+        int entry = entryIndex.get(key);
+        if (entry != -1) {
+            removeEntry(entry);
+        } else if (freeCount == 0) {
+            removeEntry(tail);
+            ++evictions;
+        }
+
+        entry = freeEntries[--freeCount];
+        keys[entry] = key;
+        results[entry] = result.clone();
+        this.dependencies[entry] = dependencies;
+        versions[entry] = version;
+        entryIndex.put(key, entry);
+        linkFirst(entry);
+        ++size;
+
+        if (dependencies != null)
+            for (int dependency : dependencies)
+                addDependent(dependency, entry);
+    }
+
+    // Вспомогательный метод, добавляющий запись в список зависящих от вершины
+    private void addDependent(int vertexId, int entry) {
+        int list = dependentIndex.get(vertexId);
+        if (list == -1) {
+            if (freeListCount > 0) {
+                list = freeLists[--freeListCount];
+            } else {
+                if (usedLists == dependents.length) {
+                    dependents = java.util.Arrays.copyOf(dependents, usedLists * 2);
+                    dependentCount = java.util.Arrays.copyOf(dependentCount, usedLists * 2);
+                }
+                list = usedLists;
+                ++usedLists;
+            }
+            dependents[list] = new long[4];
+            dependentCount[list] = 0;
+            dependentIndex.put(vertexId, list);
+        }
+
+        long[] items = dependents[list];
+        int count = dependentCount[list];
+        if (count == items.length) {
+            // Сначала выбрасываем ссылки на удалённые записи
+            int kept = 0;
+            for (int i = 0; i < count; ++i)
+                if (isLive(items[i]))
+                    items[kept++] = items[i];
+            count = kept;
+            if (count > items.length / 2) {
+                items = java.util.Arrays.copyOf(items, items.length * 2);
+                dependents[list] = items;
+            }
+        }
+
+        items[count] = ((long) generations[entry] << 32) | entry;
+        dependentCount[list] = count + 1;
+    }
+
+    private boolean isLive(long item) {
+        return generations[(int) item] == (int) (item >>> 32);
+    }
+
+    // Вспомогательный метод, удаляющий записи, зависящие от вершины
+    private void vertexChanged(int vertexId) {
+        int list = dependentIndex.remove(vertexId);
+        if (list == -1)
+            return;
+
+        long[] items = dependents[list];
+        for (int i = 0; i < dependentCount[list]; ++i)
+            if (isLive(items[i])) {
+                removeEntry((int) items[i]);
+                ++invalidations;
+            }
+
+        dependents[list] = null;
+        if (freeListCount == freeLists.length)
+            freeLists = java.util.Arrays.copyOf(freeLists, freeLists.length * 2);
+        freeLists[freeListCount] = list;
+        ++freeListCount;
+    }
+
+    private void edgeChanged(int vertexFrom, int vertexTo) {
+        ++version;
+        vertexChanged(vertexFrom);
+        vertexChanged(vertexTo);
+    }
+
+    @Override
+    public void edgeAdded(int vertexFrom, int vertexTo) {
+        edgeChanged(vertexFrom, vertexTo);
+    }
+
+    @Override
+    public void edgeRemoved(int vertexFrom, int vertexTo) {
+        edgeChanged(vertexFrom, vertexTo);
+    }
+
+    @Override
+    public void edgeRedirected(int vertexFrom, int vertexTo) {
+        edgeChanged(vertexFrom, vertexTo);
+    }
+
+    @Override
+    public void vertexRemoved(int vertexId) {
+        vertexChanged(vertexId);
+    }
+
+    // Метод, удаляющий все записи (статистика сохраняется)
+    public void clear() {
+        while (head != -1)
+            removeEntry(head);
+        dependentIndex.clear();
+        java.util.Arrays.fill(dependents, null);
+        usedLists = 0;
+        freeListCount = 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    // Число записей, вытесненных из-за переполнения
+    public long evictions() {
+        return evictions;
+    }
+
+    // Число записей, удалённых из-за изменения графа
+    public long invalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public String toString() {
+        return "StepQueryCache: size " + size + "/" + capacity + ", hits " + hits + ", misses " + misses
+                + ", evictions " + evictions + ", invalidations " + invalidations;
+    }
+}
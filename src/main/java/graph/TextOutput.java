@@ -0,0 +1,76 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+// Вывод текста в Appendable порциями. Числа переводятся в цифры вручную
+// прямо в буфер, поэтому на строку вывода не создаётся ни одного объекта
+// (в отличие от String.format и сложения строк)
+class TextOutput {
+    private static final int BUFFER_SIZE = 8192;
+    // Наибольшая длина записи int (знак и 10 цифр)
+    private static final int MAX_INT_LENGTH = 11;
+
+    private final Appendable out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final CharBuffer chars = CharBuffer.wrap(buffer);
+    private int length = 0;
+
+    TextOutput(Appendable out) {
+        this.out = out;
+    }
+
+    private void reserve(int count) throws IOException {
+        if (length + count > BUFFER_SIZE)
+            flush();
+    }
+
+    TextOutput append(String text) throws IOException {
+        if (text.length() > BUFFER_SIZE) {
+            flush();
+            out.append(text);
+            return this;
+        }
+
+        reserve(text.length());
+        text.getChars(0, text.length(), buffer, length);
+        length += text.length();
+        return this;
+    }
+
+    TextOutput append(char c) throws IOException {
+        reserve(1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    TextOutput append(int value) throws IOException {
+        reserve(MAX_INT_LENGTH);
+        // long, чтобы -Integer.MIN_VALUE не переполнялось
+        long rest = value;
+        if (rest < 0) {
+            buffer[length++] = '-';
+            rest = -rest;
+        }
+
+        // Цифры пишутся с конца, затем переворачиваются
+        int start = length;
+        do {
+            buffer[length++] = (char) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest > 0);
+        for (int i = start, j = length - 1; i < j; ++i, --j) {
+            char buff = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = buff;
+        }
+        return this;
+    }
+
+    // Метод, передающий накопленный текст в Appendable
+    void flush() throws IOException {
+        if (length > 0)
+            out.append(chars, 0, length);
+        length = 0;
+    }
+}
@@ -0,0 +1,674 @@
+package graph;
+
+// Направленный граф с версиями (MVCC). Метод snapshot() за O(1) возвращает
+// неизменяемый согласованный снимок графа. Запросы по снимку выполняются
+// без блокировок и не видят изменений, сделанных после его создания,
+// поэтому долгий обход не мешает записи и не зависит от неё.
+// Вершины и рёбра хранятся в персистентных отображениях (PersistentLongMap),
+// а списки смежности вершин - в персистентных B+-деревьях, общих у графа
+// и снимков: изменение копирует только пути в деревьях, поэтому
+// дополнительная память пропорциональна числу изменений после снимка
+// и не зависит от степени изменённых вершин. Изменения графа выполняются по одному
+// (методы синхронизированы), снимки можно читать из любых потоков
+public class VersionedDirectedGraph {
+    // Получатель соседей вершины вместе с номерами рёбер
+    private interface NeighbourConsumer {
+        void accept(int id, long sequence);
+    }
+
+    // Список соседей вершины, упорядоченный по номерам рёбер: персистентное
+    // B+-дерево с узлами до NODE_SIZE элементов. Как и в PersistentLongMap,
+    // узлы текущей эпохи изменяются на месте, а узлы, попавшие в снимок,
+    // при изменении копируются. Поэтому изменение списка после снимка
+    // копирует только путь от корня до листа (O(log32 d) узлов), а не весь
+    // список вершины степени d. Опустевшие узлы удаляются, неполные
+    // не сливаются
+    private static final class NeighbourList {
+        private static final int NODE_SIZE = 32;
+
+        // Узел дерева. В листе - ID соседей и номера рёбер, во внутреннем
+        // узле - дочерние узлы и нижние границы номеров рёбер в них
+        private static final class Node {
+            final int epoch;
+            int count;
+            long[] sequences;
+            int[] ids;
+            Node[] children;
+
+            Node(int epoch, int count, long[] sequences, int[] ids, Node[] children) {
+                this.epoch = epoch;
+                this.count = count;
+                this.sequences = sequences;
+                this.ids = ids;
+                this.children = children;
+            }
+
+            Node copy(int epoch) {
+                return new Node(epoch, count, sequences.clone(), ids == null ? null : ids.clone(),
+                        children == null ? null : children.clone());
+            }
+        }
+
+        // Пустой лист общий у всех пустых списков (его эпоха не совпадает
+        // ни с одной эпохой графа, поэтому при изменении он копируется)
+        private static final Node EMPTY = new Node(-1, 0, new long[0], new int[0], null);
+
+        private Node root;
+        int count;
+
+        private NeighbourList(Node root, int count) {
+            this.root = root;
+            this.count = count;
+        }
+
+        static NeighbourList empty() {
+            return new NeighbourList(EMPTY, 0);
+        }
+
+        // Копия списка за O(1): узлы общие, пока их не изменят
+        NeighbourList copy() {
+            return new NeighbourList(root, count);
+        }
+
+        private static Node editable(Node node, int epoch) {
+            return node.epoch == epoch ? node : node.copy(epoch);
+        }
+
+        // Место первого элемента узла с номером больше sequence
+        private static int upperBound(Node node, long sequence) {
+            int low = 0;
+            int high = node.count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (node.sequences[middle] <= sequence)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+
+            return low;
+        }
+
+        // Дочерний узел, в котором находится (или должно находиться) ребро
+        // с номером sequence
+        private static int childFor(Node node, long sequence) {
+            return Math.max(upperBound(node, sequence) - 1, 0);
+        }
+
+        // Метод, вставляющий соседа с номером ребра sequence
+        void insert(int epoch, int id, long sequence) {
+            root = editable(root, epoch);
+            Node sibling = insert(root, epoch, id, sequence);
+            if (sibling != null) {
+                Node newRoot = new Node(epoch, 2, new long[NODE_SIZE], null, new Node[NODE_SIZE]);
+                newRoot.sequences[0] = root.sequences[0];
+                newRoot.children[0] = root;
+                newRoot.sequences[1] = sibling.sequences[0];
+                newRoot.children[1] = sibling;
+                root = newRoot;
+            }
+            ++count;
+        }
+
+        // Вставка в узел текущей эпохи. Возвращает новый правый узел,
+        // если узел разделился
+        private static Node insert(Node node, int epoch, int id, long sequence) {
+            if (node.children == null)
+                return insertAt(node, epoch, upperBound(node, sequence), sequence, id, null);
+
+            int child = childFor(node, sequence);
+            Node target = editable(node.children[child], epoch);
+            node.children[child] = target;
+            Node sibling = insert(target, epoch, id, sequence);
+            if (sibling == null)
+                return null;
+
+            return insertAt(node, epoch, child + 1, sibling.sequences[0], 0, sibling);
+        }
+
+        // Вспомогательный метод, вставляющий элемент на место position узла
+        // (ID соседа в лист, дочерний узел во внутренний). Полный узел
+        // делится пополам, и возвращается его правая половина
+        private static Node insertAt(Node node, int epoch, int position, long sequence, int id, Node child) {
+            Node right = null;
+            if (node.count == NODE_SIZE) {
+                int half = NODE_SIZE / 2;
+                boolean leaf = node.children == null;
+                right = new Node(epoch, NODE_SIZE - half, new long[NODE_SIZE],
+                        leaf ? new int[NODE_SIZE] : null, leaf ? null : new Node[NODE_SIZE]);
+                System.arraycopy(node.sequences, half, right.sequences, 0, right.count);
+                if (leaf) {
+                    System.arraycopy(node.ids, half, right.ids, 0, right.count);
+                } else {
+                    System.arraycopy(node.children, half, right.children, 0, right.count);
+                    java.util.Arrays.fill(node.children, half, NODE_SIZE, null);
+                }
+                node.count = half;
+                if (position > half) {
+                    node = right;
+                    position -= half;
+                }
+            } else if (node.count == node.sequences.length) {
+                // Листья растут постепенно, чтобы короткие списки не занимали целый узел
+                int newLength = Math.min(Math.max(2, node.count * 2), NODE_SIZE);
+                node.sequences = java.util.Arrays.copyOf(node.sequences, newLength);
+                node.ids = java.util.Arrays.copyOf(node.ids, newLength);
+            }
+
+            int moved = node.count - position;
+            System.arraycopy(node.sequences, position, node.sequences, position + 1, moved);
+            node.sequences[position] = sequence;
+            if (child == null) {
+                System.arraycopy(node.ids, position, node.ids, position + 1, moved);
+                node.ids[position] = id;
+            } else {
+                System.arraycopy(node.children, position, node.children, position + 1, moved);
+                node.children[position] = child;
+            }
+            ++node.count;
+
+            return right;
+        }
+
+        // Метод, удаляющий соседа с номером ребра sequence
+        void remove(int epoch, long sequence) {
+            root = editable(root, epoch);
+            remove(root, epoch, sequence);
+            // Корень с единственным дочерним узлом заменяется этим узлом
+            while (root.children != null && root.count == 1)
+                root = root.children[0];
+            if (root.children != null && root.count == 0)
+                root = EMPTY;
+            --count;
+        }
+
+        private static void remove(Node node, int epoch, long sequence) {
+            if (node.children == null) {
+                removeAt(node, upperBound(node, sequence) - 1);
+                return;
+            }
+
+            int child = childFor(node, sequence);
+            Node target = editable(node.children[child], epoch);
+            node.children[child] = target;
+            remove(target, epoch, sequence);
+            if (target.count == 0)
+                removeAt(node, child);
+        }
+
+        private static void removeAt(Node node, int position) {
+            int moved = node.count - position - 1;
+            System.arraycopy(node.sequences, position + 1, node.sequences, position, moved);
+            if (node.children == null) {
+                System.arraycopy(node.ids, position + 1, node.ids, position, moved);
+            } else {
+                System.arraycopy(node.children, position + 1, node.children, position, moved);
+                node.children[node.count - 1] = null;
+            }
+            --node.count;
+        }
+
+        // Метод, передающий получателю соседей по порядку номеров рёбер
+        void forEach(NeighbourConsumer consumer) {
+            forEach(root, consumer);
+        }
+
+        private static void forEach(Node node, NeighbourConsumer consumer) {
+            for (int i = 0; i < node.count; ++i)
+                if (node.children == null)
+                    consumer.accept(node.ids[i], node.sequences[i]);
+                else
+                    forEach(node.children[i], consumer);
+        }
+
+        int[] toArray() {
+            int[] result = new int[count];
+            int[] size = {0};
+            forEach((id, sequence) -> result[size[0]++] = id);
+
+            return result;
+        }
+
+        // Метод, возвращающий число элементов в узлах этого списка, которых
+        // нет в списке other (т.е. скопированных после снимка other)
+        int unsharedElements(NeighbourList other) {
+            java.util.Set<Node> shared = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());
+            collectNodes(other.root, shared);
+
+            return unsharedElements(root, shared);
+        }
+
+        private static void collectNodes(Node node, java.util.Set<Node> nodes) {
+            nodes.add(node);
+            if (node.children != null)
+                for (int i = 0; i < node.count; ++i)
+                    collectNodes(node.children[i], nodes);
+        }
+
+        private static int unsharedElements(Node node, java.util.Set<Node> shared) {
+            if (shared.contains(node))
+                return 0;
+
+            int result = node.count;
+            if (node.children != null)
+                for (int i = 0; i < node.count; ++i)
+                    result += unsharedElements(node.children[i], shared);
+
+            return result;
+        }
+    }
+
+    // Состояние вершины. Изменяется на месте, только если создано в текущей
+    // эпохе (т.е. не попало ни в один снимок), иначе сначала копируется
+    private static final class VertexState {
+        final int id;
+        final long sequence;
+        final int epoch;
+        final NeighbourList out;
+        final NeighbourList in;
+        // Число входящих рёбер без петли (как в DirectedGraph)
+        int inDegree;
+
+        VertexState(int id, long sequence, int epoch, NeighbourList out, NeighbourList in, int inDegree) {
+            this.id = id;
+            this.sequence = sequence;
+            this.epoch = epoch;
+            this.out = out;
+            this.in = in;
+            this.inDegree = inDegree;
+        }
+
+        VertexState copy(int epoch) {
+            return new VertexState(id, sequence, epoch, out.copy(), in.copy(), inDegree);
+        }
+    }
+
+    // Неизменяемый снимок графа
+    public static final class Snapshot {
+        // ID вершины -> VertexState
+        private final PersistentLongMap vertices;
+        // Ключ ребра -> номер ребра (Long)
+        private final PersistentLongMap edges;
+        private final long version;
+
+        private Snapshot(PersistentLongMap vertices, PersistentLongMap edges, long version) {
+            this.vertices = vertices;
+            this.edges = edges;
+            this.version = version;
+        }
+
+        // Номер версии графа, с которой сделан снимок (число изменений)
+        public long version() {
+            return version;
+        }
+
+        public int vertexCount() {
+            return vertices.size();
+        }
+
+        public int edgeCount() {
+            return edges.size();
+        }
+
+        public boolean containsEdge(int vertexFrom, int vertexTo) {
+            return edges.containsKey(edgeKey(vertexFrom, vertexTo));
+        }
+
+        private VertexState vertex(int vertexId) {
+            return (VertexState) vertices.get(vertexId);
+        }
+
+        // Метод, возвращающий список вершин, куда ведёт указанная вершина
+        public int[] successors(int vertexId) {
+            VertexState state = vertex(vertexId);
+            return state == null ? new int[0] : state.out.toArray();
+        }
+
+        // Метод, возвращающий список вершин, из которых ведут рёбра в указанную
+        public int[] predecessors(int vertexId) {
+            VertexState state = vertex(vertexId);
+            return state == null ? new int[0] : state.in.toArray();
+        }
+
+        // Фильтр вершин по числу выходящих и входящих рёбер
+        private interface DegreeFilter {
+            boolean test(int outDegree, int inDegree);
+        }
+
+        // Вспомогательный метод, возвращающий вершины, прошедшие фильтр,
+        // в порядке их добавления в граф
+        private int[] selectVertices(DegreeFilter filter) {
+            int[] ids = new int[vertices.size()];
+            long[] sequences = new long[ids.length];
+            int[] count = {0};
+            vertices.forEach((key, value) -> {
+                VertexState state = (VertexState) value;
+                if (filter.test(state.out.count, state.inDegree)) {
+                    ids[count[0]] = state.id;
+                    sequences[count[0]] = state.sequence;
+                    ++count[0];
+                }
+            });
+
+            return ConcurrentDirectedGraph.orderedBySequence(ids, sequences, count[0]);
+        }
+
+        // Метод, возвращающий список вершин с указанным числом рёбер и более
+        public int[] verticesWithMinDegree(int vertexDegree) {
+            return selectVertices((out, in) -> out + in >= vertexDegree);
+        }
+
+        // Метод, возвращающий список вершин таких, что число рёбер входящих
+        // в вершину больше числа рёбер выходящих из вершины
+        public int[] verticesWithInDominantDegree() {
+            return selectVertices((out, in) -> in > out);
+        }
+
+        // Метод, возвращающий список ID вершин, достижимых за два хода от указанной
+        public int[] verticesWithinTwoSteps(int vertexId) {
+            return verticesWithinNSteps(vertexId, 2);
+        }
+
+        // Метод, возвращающий список вершин, достижимых за n ходов из указанной вершины
+        public int[] verticesWithinNSteps(int vertexId, int n) {
+            return walkNSteps(vertexId, n, false);
+        }
+
+        // Метод, возвращающий список вершин, из которых указанная вершина
+        // достижима за n ходов
+        public int[] verticesWithinNStepsReverse(int vertexId, int n) {
+            return walkNSteps(vertexId, n, true);
+        }
+
+        // Обход в ширину по уровням, как в DirectedGraph. Вершина уже
+        // добавлена на уровень step, если в visited ей сопоставлен номер step
+        private int[] walkNSteps(int vertexId, int n, boolean reverse) {
+            if (n <= 0 || vertex(vertexId) == null)
+                return new int[0];
+
+            IntIntHashMap visited = new IntIntHashMap();
+            int[] frontier = {vertexId};
+            int count = 1;
+            int[] next = new int[4];
+            for (int step = 0; step < n && count > 0; ++step) {
+                int nextCount = 0;
+                for (int i = 0; i < count; ++i) {
+                    VertexState state = vertex(frontier[i]);
+                    for (int neighbour : (reverse ? state.in : state.out).toArray())
+                        if (visited.get(neighbour) != step) {
+                            visited.put(neighbour, step);
+                            if (nextCount == next.length)
+                                next = java.util.Arrays.copyOf(next, nextCount * 2);
+                            next[nextCount++] = neighbour;
+                        }
+                }
+
+                int[] buff = frontier;
+                frontier = next;
+                next = buff;
+                count = nextCount;
+            }
+
+            return java.util.Arrays.copyOf(frontier, count);
+        }
+
+        @Override
+        public String toString() {
+            int edgeCount = edges.size();
+            int[] from = new int[edgeCount];
+            int[] to = new int[edgeCount];
+            long[] edgeNumbers = new long[edgeCount];
+            int[] count = {0};
+            vertices.forEach((key, value) -> {
+                VertexState state = (VertexState) value;
+                state.out.forEach((id, sequence) -> {
+                    from[count[0]] = state.id;
+                    to[count[0]] = id;
+                    edgeNumbers[count[0]] = sequence;
+                    ++count[0];
+                });
+            });
+
+            // Рёбра упорядочиваются по номерам через перестановку их индексов
+            int[] order = new int[edgeCount];
+            for (int i = 0; i < edgeCount; ++i)
+                order[i] = i;
+            order = ConcurrentDirectedGraph.orderedBySequence(order, edgeNumbers, edgeCount);
+
+            StringBuilder res = new StringBuilder();
+            for (int i = 0; i < edgeCount; ++i)
+                res.append(i + 1).append(". From ").append(from[order[i]])
+                        .append(" -> To ").append(to[order[i]]).append('\n');
+
+            return res.toString();
+        }
+    }
+
+    private final PersistentLongMap vertices = new PersistentLongMap();
+    private final PersistentLongMap edges = new PersistentLongMap();
+    // Текущая эпоха: увеличивается при каждом снимке
+    private int epoch = 0;
+    private long edgeSequence = 0;
+    private long vertexSequence = 0;
+    // Версия графа - число изменений
+    private long version = 0;
+
+    private static long edgeKey(int vertexFrom, int vertexTo) {
+        return ((long) vertexFrom << 32) | (vertexTo & 0xFFFFFFFFL);
+    }
+
+    // Метод, возвращающий неизменяемый снимок текущего состояния за O(1)
+    public synchronized Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot(vertices.snapshot(), edges.snapshot(), version);
+        ++epoch;
+
+        return snapshot;
+    }
+
+    // Представление текущего состояния без новой эпохи. Используется только
+    // под блокировкой графа и сразу же, пока граф не изменился
+    private Snapshot view() {
+        return new Snapshot(vertices, edges, version);
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    // Вспомогательный метод, возвращающий состояние вершины, которое можно
+    // изменять (при необходимости вершина создаётся или копируется)
+    private VertexState mutableVertex(int vertexId) {
+        VertexState state = (VertexState) vertices.get(vertexId);
+        if (state == null) {
+            state = new VertexState(vertexId, vertexSequence++, epoch,
+                    NeighbourList.empty(), NeighbourList.empty(), 0);
+            vertices.put(vertexId, state);
+        } else if (state.epoch != epoch) {
+            state = state.copy(epoch);
+            vertices.put(vertexId, state);
+        }
+
+        return state;
+    }
+
+    public synchronized boolean addEdge(int vertexFrom, int vertexTo) {
+        return addEdgeInternal(vertexFrom, vertexTo);
+    }
+
+    private boolean addEdgeInternal(int vertexFrom, int vertexTo) {
+        long key = edgeKey(vertexFrom, vertexTo);
+        if (edges.containsKey(key))
+            return false;
+
+        long sequence = edgeSequence++;
+        edges.put(key, sequence);
+        VertexState from = mutableVertex(vertexFrom);
+        VertexState to = mutableVertex(vertexTo);
+        from.out.insert(epoch, vertexTo, sequence);
+        to.in.insert(epoch, vertexFrom, sequence);
+        if (vertexFrom != vertexTo)
+            ++to.inDegree;
+        ++version;
+
+        return true;
+    }
+
+    // Метод массового добавления рёбер (петли отбрасываются, как
+    // в DirectedGraph.addEdges). Возвращает число добавленных рёбер
+    public synchronized int addEdges(int[] vertexFrom, int[] vertexTo) {
+        if (vertexFrom.length != vertexTo.length)
+            throw new IllegalArgumentException("Arrays of edge ends differ in length: "
+                    + vertexFrom.length + " and " + vertexTo.length);
+
+        int added = 0;
+        for (int i = 0; i < vertexFrom.length; ++i)
+            if (vertexFrom[i] != vertexTo[i] && addEdgeInternal(vertexFrom[i], vertexTo[i]))
+                ++added;
+
+        return added;
+    }
+
+    public synchronized boolean deleteEdge(int vertexFrom, int vertexTo) {
+        return deleteEdgeInternal(vertexFrom, vertexTo);
+    }
+
+    private boolean deleteEdgeInternal(int vertexFrom, int vertexTo) {
+        long key = edgeKey(vertexFrom, vertexTo);
+        Long sequence = (Long) edges.get(key);
+        if (sequence == null)
+            return false;
+
+        edges.remove(key);
+        VertexState from = mutableVertex(vertexFrom);
+        VertexState to = mutableVertex(vertexTo);
+        from.out.remove(epoch, sequence);
+        to.in.remove(epoch, sequence);
+        if (vertexFrom != vertexTo)
+            --to.inDegree;
+        ++version;
+
+        return true;
+    }
+
+    // Метод, меняющий направление ребра (ребро сохраняет своё место в порядке рёбер)
+    public synchronized boolean edgeRedirect(int vertexFrom, int vertexTo) {
+        if (vertexFrom == vertexTo || !edges.containsKey(edgeKey(vertexFrom, vertexTo))
+                || edges.containsKey(edgeKey(vertexTo, vertexFrom)))
+            return false;
+
+        VertexState from = mutableVertex(vertexFrom);
+        VertexState to = mutableVertex(vertexTo);
+        long sequence = (Long) edges.get(edgeKey(vertexFrom, vertexTo));
+        from.out.remove(epoch, sequence);
+        to.in.remove(epoch, sequence);
+        --to.inDegree;
+        edges.remove(edgeKey(vertexFrom, vertexTo));
+
+        edges.put(edgeKey(vertexTo, vertexFrom), sequence);
+        to.out.insert(epoch, vertexFrom, sequence);
+        from.in.insert(epoch, vertexTo, sequence);
+        ++from.inDegree;
+        ++version;
+
+        return true;
+    }
+
+    public synchronized boolean deleteVertex(int vertexId) {
+        return deleteVertexInternal(vertexId);
+    }
+
+    private boolean deleteVertexInternal(int vertexId) {
+        VertexState state = (VertexState) vertices.get(vertexId);
+        if (state == null)
+            return false;
+
+        int[] successors = state.out.toArray();
+        int[] predecessors = state.in.toArray();
+        for (int successor : successors)
+            deleteEdgeInternal(vertexId, successor);
+        for (int predecessor : predecessors)
+            if (predecessor != vertexId)
+                deleteEdgeInternal(predecessor, vertexId);
+
+        vertices.remove(vertexId);
+        ++version;
+
+        return true;
+    }
+
+    // Метод, удаляющий вершины, у которых наименьшая разность (по модулю)
+    // числа входящих и выходящих рёбер
+    public synchronized boolean deleteVerticesWithMinDegreeDifference() {
+        if (vertices.size() == 0)
+            return false;
+
+        int[] minDifference = {-1};
+        vertices.forEach((key, value) -> {
+            VertexState state = (VertexState) value;
+            int difference = Math.abs(state.inDegree - state.out.count);
+            if (difference < minDifference[0] || minDifference[0] == -1)
+                minDifference[0] = difference;
+        });
+
+        // Набор удаляемых вершин определяется до удаления, как в DirectedGraph
+        int[] toDelete = view().selectVertices((out, in) -> Math.abs(in - out) == minDifference[0]);
+        for (int vertexId : toDelete)
+            deleteVertexInternal(vertexId);
+
+        return true;
+    }
+
+    public synchronized int vertexCount() {
+        return vertices.size();
+    }
+
+    public synchronized int edgeCount() {
+        return edges.size();
+    }
+
+    public synchronized int[] successors(int vertexId) {
+        return view().successors(vertexId);
+    }
+
+    public synchronized int[] predecessors(int vertexId) {
+        return view().predecessors(vertexId);
+    }
+
+    public synchronized int[] verticesWithMinDegree(int vertexDegree) {
+        return view().verticesWithMinDegree(vertexDegree);
+    }
+
+    public synchronized int[] verticesWithInDominantDegree() {
+        return view().verticesWithInDominantDegree();
+    }
+
+    public synchronized int[] verticesWithinTwoSteps(int vertexId) {
+        return view().verticesWithinTwoSteps(vertexId);
+    }
+
+    public synchronized int[] verticesWithinNSteps(int vertexId, int n) {
+        return view().verticesWithinNSteps(vertexId, n);
+    }
+
+    public synchronized int[] verticesWithinNStepsReverse(int vertexId, int n) {
+        return view().verticesWithinNStepsReverse(vertexId, n);
+    }
+
+    // Метод, возвращающий число элементов списков смежности вершины,
+    // скопированных после снимка (остальные элементы общие со снимком)
+    synchronized int listElementsCopiedSince(Snapshot snapshot, int vertexId) {
+        VertexState current = (VertexState) vertices.get(vertexId);
+        VertexState old = snapshot.vertex(vertexId);
+        if (current == null)
+            return 0;
+        if (old == null)
+            return current.out.count + current.in.count;
+
+        return current.out.unsharedElements(old.out) + current.in.unsharedElements(old.in);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return view().toString();
+    }
+}